@@ -0,0 +1,79 @@
+package gomoku.benchmark;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.state.Gomoku;
+import gomoku.state.GomokuActionList;
+import gomoku.state.IntActionSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Remove an action and add it back at the same index, the way moves are made and undone
+// GomokuActionList next to IntActionSet, which replaced it in GomokuFunctions
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ActionListBenchmark {
+
+    @Param({"10", "40", "100", "225"})
+    int size; // actions in the list
+
+    private GomokuActionList list;
+    private IntActionSet set;
+    private int next; // index to remove
+
+    @Setup
+    public void setup() {
+        list = new GomokuActionList(Gomoku.CELL_COUNT);
+        set = new IntActionSet();
+
+        List<Action> actions = new Gomoku().getPossibleActions();
+        for (int i = 0; i < size; i++) {
+            list.add((GomokuAction) actions.get(i));
+            set.add(((GomokuAction) actions.get(i)).getIndex());
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = next + 1 == size ? 0 : next + 1;
+        return index;
+    }
+
+    @Benchmark
+    public int actionListRemoveAdd() {
+        int index = nextIndex();
+        GomokuAction action = list.remove(index);
+        list.add(index, action);
+        return list.size();
+    }
+
+    @Benchmark
+    public boolean actionListContains() {
+        return list.contains(list.get(nextIndex()));
+    }
+
+    @Benchmark
+    public int intActionSetRemoveAdd() {
+        int index = nextIndex();
+        int cell = set.removeAt(index);
+        set.add(index, cell);
+        return set.size();
+    }
+}
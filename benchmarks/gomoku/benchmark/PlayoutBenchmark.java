@@ -0,0 +1,97 @@
+package gomoku.benchmark;
+
+import gomoku.action.Action;
+import gomoku.state.BitboardGomoku;
+import gomoku.state.Gomoku;
+import gomoku.state.GomokuFunctions;
+import gomoku.state.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Random playouts to the end of the game from a position with fill stones
+// uniform: any empty cell, as in SpeedTest. bitboard: the same on BitboardGomoku
+// functions: the MCTS default policy, undone with backMove()
+
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PlayoutBenchmark {
+
+    @Param({"0", "10", "40", "100"})
+    int fill; // stones on the board
+
+    private final Random random = new Random(0);
+
+    private Gomoku gomoku;
+    private BitboardGomoku bitboard;
+    private GomokuFunctions functions;
+
+    @Setup
+    public void setup() {
+        List<Action> moves = Positions.randomMoves(fill, fill);
+        gomoku = Positions.play(new Gomoku(), moves);
+        bitboard = Positions.play(new BitboardGomoku(), moves);
+        functions = Positions.play(new GomokuFunctions(), moves);
+    }
+
+    @Benchmark
+    public int uniform() {
+        return uniform(gomoku);
+    }
+
+    @Benchmark
+    public int bitboard() {
+        return uniform(bitboard);
+    }
+
+    private int uniform(State position) {
+        State state = position.copy();
+        while (!state.isTerminal()) {
+            state.makeMove(random.nextInt(state.getPossibleActions().size()));
+        }
+        return state.score();
+    }
+
+    @Benchmark
+    public int functions() {
+        int ply = functions.getPly();
+        while (!functions.isTerminal()) {
+            functions.makeMove(defaultPolicy(functions));
+        }
+        int score = functions.score();
+
+        while (functions.getPly() > ply) {
+            functions.backMove();
+        }
+        return score;
+    }
+
+    // Same as MCTS.defaultPolicy()
+    private Action defaultPolicy(GomokuFunctions state) {
+        if (!state.getPlayerThreats().isEmpty()) return state.getPlayerThreats().get(0);
+        if (!state.getEnemyThreats().isEmpty()) return state.getEnemyThreats().get(0);
+        if (!state.getPlayerDoubleThreats().isEmpty()) return state.getPlayerDoubleThreats().get(0);
+        if (!state.getEnemyDoubleThreats().isEmpty()) {
+            return state.getEnemyDoubleThreats().get(random.nextInt(state.getEnemyDoubleThreats().size()));
+        }
+
+        List<Action> possibleActions = state.getNeighboursUnion();
+        if (possibleActions.isEmpty()) possibleActions = state.getPossibleActions();
+        return possibleActions.get(random.nextInt(possibleActions.size()));
+    }
+}
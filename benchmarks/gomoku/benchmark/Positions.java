@@ -0,0 +1,40 @@
+package gomoku.benchmark;
+
+import gomoku.action.Action;
+import gomoku.state.GomokuFunctions;
+import gomoku.state.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Reproducible positions to benchmark on
+
+class Positions {
+
+    // Moves of a random game that is not over after fill moves. The same seed always gives the same moves
+    static List<Action> randomMoves(int fill, long seed) {
+        Random random = new Random(seed);
+
+        while (true) {
+            GomokuFunctions state = new GomokuFunctions();
+            List<Action> moves = new ArrayList<>(fill);
+
+            while (moves.size() < fill && !state.isTerminal()) {
+                List<Action> possibleActions = state.getPossibleActions();
+                Action action = possibleActions.get(random.nextInt(possibleActions.size()));
+                state.makeMove(action);
+                moves.add(action);
+            }
+
+            if (!state.isTerminal()) return moves;
+        }
+    }
+
+    static <S extends State> S play(S state, List<Action> moves) {
+        for (Action action : moves) {
+            state.makeMove(action);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,49 @@
+package gomoku.benchmark;
+
+import gomoku.action.Action;
+import gomoku.ai.AI;
+import gomoku.ai.TimeManager;
+import gomoku.ai.mcts.MCTS;
+import gomoku.state.Gomoku;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// One MCTS.makeMove() on the empty board at a fixed number of iterations, from a fresh tree every time
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SearchBenchmark {
+
+    @Param({"1000", "10000"})
+    int iterations;
+
+    private AI ai;
+    private Gomoku state;
+
+    @Setup
+    public void setup() {
+        ai = new MCTS(TimeManager.fixedIterations(iterations));
+        state = new Gomoku();
+    }
+
+    @Benchmark
+    public Action mctsMakeMove() {
+        ai.reset();
+        return ai.makeMove(state, null);
+    }
+}
@@ -0,0 +1,107 @@
+package gomoku.benchmark;
+
+import gomoku.action.Action;
+import gomoku.state.BitboardGomoku;
+import gomoku.state.Gomoku;
+import gomoku.state.GomokuFunctions;
+import gomoku.state.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Single operations on Gomoku, BitboardGomoku and GomokuFunctions, at several numbers of stones on the board
+// Gomoku and BitboardGomoku cannot undo a move, so makeMove is measured together with copy()
+// Subtract gomokuCopy or bitboardCopy for makeMove alone
+
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StateBenchmark {
+
+    @Param({"0", "10", "40", "100"})
+    int fill; // stones on the board
+
+    private Gomoku gomoku;
+    private BitboardGomoku bitboard;
+    private GomokuFunctions functions;
+
+    // Empty cells to play, cycled through so every call plays a different move
+    private Action[] actions;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<Action> moves = Positions.randomMoves(fill, fill);
+        gomoku = Positions.play(new Gomoku(), moves);
+        bitboard = Positions.play(new BitboardGomoku(), moves);
+        functions = Positions.play(new GomokuFunctions(), moves);
+        actions = gomoku.getPossibleActions().toArray(new Action[0]);
+    }
+
+    private Action nextAction() {
+        Action action = actions[next];
+        next = next + 1 == actions.length ? 0 : next + 1;
+        return action;
+    }
+
+    @Benchmark
+    public State gomokuCopy() {
+        return gomoku.copy();
+    }
+
+    @Benchmark
+    public State gomokuCopyAndMakeMove() {
+        State state = gomoku.copy();
+        state.makeMove(nextAction());
+        return state;
+    }
+
+    @Benchmark
+    public boolean gomokuIsWon() {
+        return gomoku.isWon();
+    }
+
+    @Benchmark
+    public State bitboardCopy() {
+        return bitboard.copy();
+    }
+
+    @Benchmark
+    public State bitboardCopyAndMakeMove() {
+        State state = bitboard.copy();
+        state.makeMove(nextAction());
+        return state;
+    }
+
+    @Benchmark
+    public boolean bitboardIsWon() {
+        return bitboard.isWon();
+    }
+
+    @Benchmark
+    public GomokuFunctions functionsCopy() {
+        return functions.copy();
+    }
+
+    // makeMove updates neighbours and threats, backMove reverts them
+    @Benchmark
+    public void functionsMakeMoveBackMove(Blackhole blackhole) {
+        functions.makeMove(nextAction());
+        blackhole.consume(functions.getPlayerThreats().size());
+        functions.backMove();
+    }
+}
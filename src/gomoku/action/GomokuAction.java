@@ -1,14 +1,36 @@
 package gomoku.action;
 
+import gomoku.state.Gomoku;
+
 public class GomokuAction implements Action {
 
+    // One action per cell, indexed by x * SIZE + y. There are no other GomokuAction instances,
+    // so actions can be compared with ==
+    private static final GomokuAction[] actions = new GomokuAction[Gomoku.CELL_COUNT];
+
+    static {
+        for (int i = 0; i < Gomoku.SIZE; i++) {
+            for (int j = 0; j < Gomoku.SIZE; j++) {
+                actions[i * Gomoku.SIZE + j] = new GomokuAction(i, j);
+            }
+        }
+    }
+
     private final int x, y;
 
-    public GomokuAction(int x, int y) {
+    private GomokuAction(int x, int y) {
         this.x = x;
         this.y = y;
     }
 
+    public static GomokuAction of(int x, int y) {
+        return actions[x * Gomoku.SIZE + y];
+    }
+
+    public static GomokuAction of(int index) {
+        return actions[index];
+    }
+
     public int getX() {
         return x;
     }
@@ -17,6 +39,11 @@ public class GomokuAction implements Action {
         return y;
     }
 
+    // x * SIZE + y
+    public int getIndex() {
+        return x * Gomoku.SIZE + y;
+    }
+
     @Override
     public void print() {
         System.out.println((char) ('A' + x) + "" + (y + 1));
@@ -24,7 +51,7 @@ public class GomokuAction implements Action {
 
     @Override
     public boolean equals(Action action) {
-        return x == ((GomokuAction) action).x && y == ((GomokuAction) action).y;
+        return this == action;
     }
 
     public void printCoordinates() {
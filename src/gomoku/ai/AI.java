@@ -3,6 +3,8 @@ package gomoku.ai;
 import gomoku.state.State;
 import gomoku.action.Action;
 
+import java.util.List;
+
 // an AI for a two player game
 
 public interface AI {
@@ -13,4 +15,9 @@ public interface AI {
     // Tell the AI that there will be a new game
     // Useful for clearing memory instead of having the computer reallocate memory
     void reset();
+
+    // Tell the AI that the new game starts from the position reached by these moves (Ex. a test opening)
+    // Called after reset(). An AI that only looks at gameState can ignore it
+    default void setPosition(List<Action> moves) {
+    }
 }
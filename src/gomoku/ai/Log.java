@@ -0,0 +1,34 @@
+package gomoku.ai;
+
+// Per move output of the engines (speed, scores, reused visits) goes through here instead of System.out
+// Quiet by default, so that matches measure the engines and not the terminal
+//
+// Check isEnabled() before building a message, so that a quiet engine does no string work at all:
+//     if (Log.isEnabled()) Log.log("MCTS Speed: " + speed);
+
+public class Log {
+
+    public interface Logger {
+        void log(String message);
+    }
+
+    public static final Logger QUIET = message -> {};
+    public static final Logger CONSOLE = System.out::println;
+
+    private static volatile Logger logger = QUIET;
+
+    private Log() {
+    }
+
+    public static void setLogger(Logger logger) {
+        Log.logger = logger;
+    }
+
+    public static boolean isEnabled() {
+        return logger != QUIET;
+    }
+
+    public static void log(String message) {
+        logger.log(message);
+    }
+}
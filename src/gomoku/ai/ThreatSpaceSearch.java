@@ -0,0 +1,232 @@
+package gomoku.ai;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.state.Gomoku;
+import gomoku.state.GomokuFunctions;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Threat-space search: looks for a forced win by the player to move, playing only threats
+    - VCF (victory by continuous fours): every attacking move makes a four, so the only reply is to block it
+    - VCT (victory by continuous threats): threes too, answered by any move that could stop the coming double threat
+
+    The search plays on the given state with makeMove() and backMove(), and leaves it as it was.
+    A win it reports is always real. Not finding one proves nothing: attacking moves are only the fours and threes
+    seen by the line patterns, and the search stops at MAX_DEPTH attacking moves or when the budget runs out.
+
+    Results of attacking positions are cached by Zobrist hash. A failure is only kept if the budget did not run out,
+    along with the depth it was searched to.
+ */
+
+public class ThreatSpaceSearch {
+
+    private static final int CELL_COUNT = Gomoku.CELL_COUNT;
+
+    private static final int MAX_VCF_DEPTH = 20; // attacking moves
+    private static final int MAX_VCT_DEPTH = 8;
+    private static final int MAX_NODES = 20000; // default budget per search
+    private static final int TIME_CHECK_INTERVAL = 256; // nodes between clock reads, power of 2
+
+    private static final int CACHE_BITS = 16;
+    private static final long VCT_KEY = 0x9E3779B97F4A7C15L; // mixed into the keys of VCT results, to keep them apart from VCF results
+
+    // Cache, in parallel arrays indexed by the low bits of the key
+    private final long[] cacheKeys = new long[1 << CACHE_BITS]; // 0 for an empty slot
+    private final int[] cacheResults = new int[1 << CACHE_BITS]; // winning cell, or NO_WIN_AT - depth searched to
+
+    private static final int NO_WIN_AT = -1; // NO_WIN_AT - depth: no win within depth moves
+
+    // Budget of the current search
+    private int maxNodes = MAX_NODES;
+    private long maxTime; // ms, 0 for no limit
+    private int nodeLimit;
+    private long deadline;
+    private int nodes;
+    private boolean outOfBudget;
+
+    // Moves tried at each depth, so the search does not allocate
+    private final int[][] moves = new int[2 * Math.max(MAX_VCF_DEPTH, MAX_VCT_DEPTH) + 2][CELL_COUNT];
+    private final int[] marks = new int[CELL_COUNT]; // cells already in the list of replies if equal to mark
+    private int mark;
+
+    // Budget of each search. Ex. a few hundred nodes at every leaf of a tree, many more at the root
+    public void setBudget(int maxNodes, long maxTime) {
+        this.maxNodes = maxNodes;
+        this.maxTime = maxTime;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    // Winning move by continuous fours for the player to move, or null if none was found
+    public Action findVCF(GomokuFunctions state) {
+        return find(state, false, maxNodes);
+    }
+
+    public Action findVCF(GomokuFunctions state, int maxNodes) {
+        return find(state, false, maxNodes);
+    }
+
+    // Winning move by continuous fours and threes for the player to move, or null if none was found
+    public Action findVCT(GomokuFunctions state) {
+        return find(state, true, maxNodes);
+    }
+
+    public Action findVCT(GomokuFunctions state, int maxNodes) {
+        return find(state, true, maxNodes);
+    }
+
+    public void clear() {
+        Arrays.fill(cacheKeys, 0);
+    }
+
+    private Action find(GomokuFunctions state, boolean threes, int maxNodes) {
+        if (state.isTerminal()) return null;
+
+        nodes = 0;
+        nodeLimit = maxNodes;
+        deadline = maxTime > 0 ? System.nanoTime() + maxTime * 1000000 : 0;
+        outOfBudget = false;
+
+        int cell = attack(state, threes ? MAX_VCT_DEPTH : MAX_VCF_DEPTH, threes, 0);
+        return cell == -1 ? null : GomokuAction.of(cell);
+    }
+
+    // Attacker (the player to move) looks for a winning threat. Returns the winning cell, -1 if none was found
+    private int attack(GomokuFunctions state, int depth, boolean threes, int ply) {
+        nodes++;
+
+        List<Action> threats = state.getPlayerThreats();
+        if (!threats.isEmpty()) return ((GomokuAction) threats.get(0)).getIndex();
+
+        // Two fives for the defender cannot both be blocked
+        List<Action> enemyThreats = state.getEnemyThreats();
+        if (enemyThreats.size() > 1) return -1;
+
+        // A double four wins, unless it is somewhere else than on the five the attacker has to block
+        List<Action> doubleThreats = state.getPlayerDoubleThreats();
+        if (enemyThreats.isEmpty() && !doubleThreats.isEmpty()) return ((GomokuAction) doubleThreats.get(0)).getIndex();
+
+        if (depth == 0 || isOutOfBudget()) return -1;
+
+        long key = threes ? state.getHash() ^ VCT_KEY : state.getHash();
+        int slot = (int) key & ((1 << CACHE_BITS) - 1);
+        if (cacheKeys[slot] == key) {
+            int result = cacheResults[slot];
+            if (result >= 0) return result;
+            if (NO_WIN_AT - result >= depth) return -1;
+        }
+
+        int[] candidates = moves[ply];
+        int size = 0;
+        if (enemyThreats.size() == 1) {
+            // The attacker has to block. That only keeps the initiative if the block is a threat too
+            int block = ((GomokuAction) enemyThreats.get(0)).getIndex();
+            if (isAttack(state, block, threes)) candidates[size++] = block;
+        } else {
+            // Fours first, they leave the defender a single reply
+            List<Action> empty = state.getPossibleActions();
+            for (int i = 0; i < empty.size(); i++) {
+                int cell = ((GomokuAction) empty.get(i)).getIndex();
+                if (state.countPlayerFours(cell) > 0) candidates[size++] = cell;
+            }
+            if (threes) {
+                for (int i = 0; i < empty.size(); i++) {
+                    int cell = ((GomokuAction) empty.get(i)).getIndex();
+                    if (state.countPlayerFours(cell) == 0 && state.countPlayerThrees(cell) > 0) candidates[size++] = cell;
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            int cell = candidates[i];
+            state.makeMove(GomokuAction.of(cell));
+            boolean win = defend(state, depth - 1, threes, ply + 1);
+            state.backMove();
+
+            if (win) {
+                cacheKeys[slot] = key;
+                cacheResults[slot] = cell;
+                return cell;
+            }
+        }
+
+        if (!outOfBudget) {
+            cacheKeys[slot] = key;
+            cacheResults[slot] = NO_WIN_AT - depth;
+        }
+        return -1;
+    }
+
+    // Defender (the player to move) answers a four or a three. Returns true if the attacker wins against every reply
+    private boolean defend(GomokuFunctions state, int depth, boolean threes, int ply) {
+        nodes++;
+
+        if (!state.getPlayerThreats().isEmpty()) return false; // defender makes five first
+
+        List<Action> threats = state.getEnemyThreats();
+        if (threats.size() > 1) return true;
+
+        int[] replies = moves[ply];
+        int size = 0;
+        if (threats.size() == 1) {
+            replies[size++] = ((GomokuAction) threats.get(0)).getIndex();
+        } else {
+            // A three. If it made no double threat it was not a threat after all
+            List<Action> doubleThreats = state.getEnemyDoubleThreats();
+            if (doubleThreats.isEmpty()) return false;
+
+            // A reply that neither makes a four nor changes the lines around any double threat cell
+            // leaves the attacker a double four next move, so only those replies need to be searched
+            mark++;
+            List<Action> empty = state.getPossibleActions();
+            for (int i = 0; i < empty.size(); i++) {
+                int cell = ((GomokuAction) empty.get(i)).getIndex();
+                if (state.countPlayerFours(cell) > 0) size = addReply(replies, size, cell);
+            }
+            for (int i = 0; i < doubleThreats.size(); i++) {
+                int cell = ((GomokuAction) doubleThreats.get(i)).getIndex();
+                size = addReply(replies, size, cell);
+
+                int[] lineNeighbours = GomokuFunctions.getLineNeighbours(cell);
+                for (int j = 0; j < lineNeighbours.length; j++) {
+                    int neighbour = lineNeighbours[j];
+                    if (state.isEmpty(neighbour / Gomoku.SIZE, neighbour % Gomoku.SIZE)) size = addReply(replies, size, neighbour);
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            state.makeMove(GomokuAction.of(replies[i]));
+            boolean win = attack(state, depth, threes, ply + 1) != -1;
+            state.backMove();
+
+            if (!win) return false;
+        }
+        return true;
+    }
+
+    private int addReply(int[] replies, int size, int cell) {
+        if (marks[cell] == mark) return size;
+        marks[cell] = mark;
+        replies[size] = cell;
+        return size + 1;
+    }
+
+    // Does the player to move threaten by playing on cell?
+    private static boolean isAttack(GomokuFunctions state, int cell, boolean threes) {
+        return state.countPlayerFours(cell) > 0 || (threes && state.countPlayerThrees(cell) > 0);
+    }
+
+    private boolean isOutOfBudget() {
+        if (!outOfBudget) {
+            outOfBudget = nodes > nodeLimit
+                    || (deadline != 0 && (nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - deadline > 0);
+        }
+        return outOfBudget;
+    }
+}
@@ -0,0 +1,125 @@
+package gomoku.ai;
+
+// Decides how long an engine thinks on each move
+// Either a fixed number of iterations per move, or a game clock with an increment
+//
+// Usage from an engine:
+//     startMove(ply), then every iteration: if (isCheckpoint(iteration) && isTimeUp(...)) stop, then endMove()
+// The clock is only read at checkpoints, every CHECK_INTERVAL iterations
+
+public class TimeManager {
+
+    private static final int CHECK_INTERVAL = 128; // iterations between clock reads, power of 2
+
+    private static final int EXPECTED_GAME_LENGTH = 70; // plies
+    private static final int MIN_MOVES_TO_GO = 8; // always keep time for at least this many of our moves
+    private static final double MAX_STRETCH = 4; // a move may use up to this times its share of the clock
+    private static final double VOLATILITY = 0.5; // extra share of the budget for every change of best move
+    private static final long SAFETY_MARGIN = 50; // ms kept back for overhead and communication
+
+    private final int iterations; // iterations per move, 0 when playing on a clock
+
+    private long timeLeft; // ms left on the clock
+    private long increment; // ms added after every move
+    private long turnLimit; // ms allowed for a single move, 0 for no limit
+
+    // Current move
+    private long moveStart; // System.nanoTime()
+    private long budget, limit; // ns we aim to use, ns we may never exceed
+    private int lastBest = -1;
+    private int bestChanges;
+
+    private TimeManager(int iterations, long timeLeft, long increment) {
+        this.iterations = iterations;
+        this.timeLeft = timeLeft;
+        this.increment = increment;
+    }
+
+    // Think for a fixed number of iterations per move
+    public static TimeManager fixedIterations(int iterations) {
+        return new TimeManager(iterations, 0, 0);
+    }
+
+    // Play on a clock of totalTime ms for the whole game, with increment ms added after every move
+    public TimeManager(long totalTime, long increment) {
+        this(0, totalTime, increment);
+    }
+
+    // Set the clock, for when the time is kept by someone else (Ex. a tournament manager)
+    public void setTimeLeft(long timeLeft) {
+        this.timeLeft = timeLeft;
+    }
+
+    public void setIncrement(long increment) {
+        this.increment = increment;
+    }
+
+    public void setTurnLimit(long turnLimit) {
+        this.turnLimit = turnLimit;
+    }
+
+    public long getTimeLeft() {
+        return timeLeft;
+    }
+
+    public boolean isFixedIterations() {
+        return iterations != 0;
+    }
+
+    // Start thinking on a move at the given ply of the game
+    public void startMove(int ply) {
+        moveStart = System.nanoTime();
+        lastBest = -1;
+        bestChanges /= 2; // volatility of the previous move still says something about this one
+
+        if (isFixedIterations()) return;
+
+        long available = Math.max(0, timeLeft - SAFETY_MARGIN);
+        int movesToGo = Math.max(MIN_MOVES_TO_GO, (EXPECTED_GAME_LENGTH - ply) / 2);
+
+        double share = (double) available / movesToGo + increment * 0.75;
+        double maximum = Math.min(share * MAX_STRETCH, available / 3.0 + increment * 0.75);
+        if (turnLimit > 0) maximum = Math.min(maximum, turnLimit - SAFETY_MARGIN);
+        maximum = Math.max(maximum, 1);
+
+        limit = (long) (maximum * 1000000);
+        budget = (long) (Math.min(share, maximum) * 1000000);
+    }
+
+    // Should the engine check the time on this iteration?
+    public boolean isCheckpoint(int iteration) {
+        return (iteration & (CHECK_INTERVAL - 1)) == 0 || (isFixedIterations() && iteration >= iterations);
+    }
+
+    // Called at checkpoints with the index of the most visited root child (-1 if there are no children yet)
+    // and the visit counts of the most visited and second most visited root children
+    public boolean isTimeUp(int iteration, int best, int mostVisits, int secondVisits) {
+        // Best move changes mean the position is unclear, so think longer
+        if (best != lastBest) {
+            if (lastBest != -1) bestChanges++;
+            lastBest = best;
+        }
+
+        // A fixed budget always runs to the end, so that fixed iteration matches compare like with like
+        if (isFixedIterations()) return iteration >= iterations;
+
+        long elapsed = System.nanoTime() - moveStart;
+        if (elapsed >= limit) return true;
+
+        long target = Math.min(limit, (long) (budget * (1 + VOLATILITY * Math.min(bestChanges, 4))));
+        if (elapsed >= target) return true;
+
+        // Stop early if the most visited child, which the engines play, cannot be caught up with in the iterations
+        // that the rest of the time would give
+        long remaining = (long) ((double) iteration / elapsed * (target - elapsed));
+        return best != -1 && mostVisits - secondVisits > remaining;
+    }
+
+    // Finished thinking on a move. Update the clock
+    public void endMove() {
+        if (isFixedIterations()) return;
+
+        long used = (System.nanoTime() - moveStart) / 1000000;
+        timeLeft = timeLeft - used + increment;
+    }
+}
@@ -0,0 +1,332 @@
+package gomoku.ai.alphabeta;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.ai.TimeManager;
+import gomoku.book.OpeningBook;
+import gomoku.state.Gomoku;
+import gomoku.state.GomokuFunctions;
+import gomoku.state.State;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Alpha-beta search: iterative deepening, principal variation search and a transposition table
+    https://www.chessprogramming.org/Principal_Variation_Search
+
+    Moves are the neighbours of all stones and the double threats of both players, or only the blocks when the
+    opponent threatens five. They are tried in order: move from the transposition table, killer moves, then by
+    threats made and history. Forced blocks do not use up depth, so the search does not stop in the middle of an attack.
+
+    There is no randomness: the same position and node budget always give the same move.
+    That makes it a fixed baseline to test other engines against.
+ */
+
+public class AlphaBeta implements AI {
+
+    private static final int N = 200000; // nodes per move when no time control is given
+    private static final int MAX_PLY = 64;
+    private static final int TABLE_MEGABYTES = 64;
+
+    private static final int CELL_COUNT = Gomoku.CELL_COUNT;
+    private static final int SIZE = Gomoku.SIZE;
+
+    private static final int WIN = 1000000; // score of winning at the root, one less for every ply it takes
+    private static final int WIN_BOUND = WIN - 1000; // scores past this are wins or losses
+    private static final int INFINITY = WIN + 1;
+
+    // Evaluation: every window of 5 cells in a line with stones of only one player, by number of stones
+    private static final int[] WINDOW_SCORES = {0, 1, 10, 100, 1000};
+
+    private final TimeManager timeManager;
+    private final TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+    private GomokuFunctions rootState;
+
+    private OpeningBook openingBook; // moves played without searching, null if not used
+
+    // Move ordering
+    private final int[][] killers = new int[MAX_PLY][2]; // the last 2 moves that caused a cutoff at each ply
+    private final int[][] history = new int[2][CELL_COUNT]; // [player][cell], how much the move caused cutoffs
+
+    // Moves and their ordering scores at each ply, so the search does not allocate
+    private final int[][] moves = new int[MAX_PLY][CELL_COUNT];
+    private final int[][] moveScores = new int[MAX_PLY][CELL_COUNT];
+    private final int[] marks = new int[CELL_COUNT]; // cells already in the move list if equal to mark
+    private int mark;
+    private final int[] windows = new int[Gomoku.IN_A_ROW];
+
+    private int nodes;
+    private boolean stopped; // out of time or nodes, the current iteration is thrown away
+    private int rootMove; // best move of the current iteration so far, -1 if no move was searched to the end
+
+    public AlphaBeta() {
+        this(TimeManager.fixedIterations(N));
+    }
+
+    public AlphaBeta(TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
+    @Override
+    public void reset() {
+        rootState = new GomokuFunctions();
+        table.clear();
+        for (int[] playerHistory : history) Arrays.fill(playerHistory, 0);
+    }
+
+    @Override
+    public void setPosition(List<Action> moves) {
+        for (Action action : moves) {
+            rootState.makeMove(action);
+        }
+    }
+
+    // Play moves from an opening book while it has them, instead of searching
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    @Override
+    public Action makeMove(State gameState, Action opponentAction) {
+        if (opponentAction != null) {
+            rootState.makeMove(opponentAction);
+        }
+
+        Action bookMove = openingBook == null ? null : openingBook.getMove(rootState);
+        if (bookMove != null) {
+            if (Log.isEnabled()) Log.log("AlphaBeta book move");
+            rootState.makeMove(bookMove);
+            return bookMove;
+        }
+
+        nodes = 0;
+        stopped = false;
+        table.newSearch();
+        for (int[] plyKillers : killers) Arrays.fill(plyKillers, -1);
+        for (int[] playerHistory : history) {
+            for (int i = 0; i < CELL_COUNT; i++) playerHistory[i] /= 2; // older cutoffs matter less
+        }
+
+        timeManager.startMove(rootState.getPly());
+        long timeStart = System.currentTimeMillis();
+
+        // Fall back on the first move in case not even depth 1 is finished
+        int size = generateMoves(rootState, 0, -1);
+        int bestMove = moves[0][pickMove(0, 0, size)];
+
+        for (int depth = 1; depth < MAX_PLY && size > 1; depth++) {
+            rootMove = -1;
+            int score = search(rootState, depth, -INFINITY, INFINITY, 0);
+
+            // Moves of a stopped iteration that were searched to the end can still be trusted.
+            // The first one is the best move of the last iteration, from the transposition table
+            if (rootMove != -1) bestMove = rootMove;
+            if (stopped) break;
+
+            if (Log.isEnabled()) Log.log("AlphaBeta depth " + depth + " score " + score + " nodes " + nodes);
+            if (Math.abs(score) > WIN_BOUND) break; // the game is decided
+        }
+
+        timeManager.endMove();
+        long time = System.currentTimeMillis() - timeStart;
+        if (Log.isEnabled()) Log.log("AlphaBeta Speed: " + (double) nodes / Math.max(1, time) * 1000);
+
+        Action action = GomokuAction.of(bestMove);
+        rootState.makeMove(action);
+        return action;
+    }
+
+    // Score of the position for the player to move
+    private int search(GomokuFunctions state, int depth, int alpha, int beta, int ply) {
+        nodes++;
+        if (timeManager.isCheckpoint(nodes) && timeManager.isTimeUp(nodes, -1, 0, 0)) stopped = true;
+        if (stopped) return 0;
+
+        // Five next move
+        List<Action> threats = state.getPlayerThreats();
+        if (!threats.isEmpty()) {
+            if (ply == 0) rootMove = ((GomokuAction) threats.get(0)).getIndex();
+            return WIN - ply - 1;
+        }
+
+        List<Action> enemyThreats = state.getEnemyThreats();
+        if (ply > 0) {
+            // Only one of two fives can be blocked
+            if (enemyThreats.size() > 1) return -(WIN - ply - 2);
+
+            // A double four cannot be blocked either
+            if (enemyThreats.isEmpty() && !state.getPlayerDoubleThreats().isEmpty()) return WIN - ply - 3;
+
+            if (state.isTerminal()) return 0;
+
+            // Blocks are searched past the last ply
+            if ((depth <= 0 && enemyThreats.isEmpty()) || ply == MAX_PLY - 1) return evaluate(state);
+        }
+
+        long hash = state.getHash();
+        int tableMove = -1;
+        int slot = table.find(hash);
+        if (slot != -1) {
+            tableMove = table.getMove(slot);
+
+            if (ply > 0 && table.getDepth(slot) >= depth) {
+                int score = fromTable(table.getScore(slot), ply);
+                byte bound = table.getBound(slot);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int size = generateMoves(state, ply, tableMove);
+        int newDepth = size == 1 ? depth : depth - 1; // a forced move costs no depth
+        int player = state.isFirstPlayer() ? 0 : 1;
+
+        int alphaStart = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < size; i++) {
+            int cell = moves[ply][pickMove(ply, i, size)];
+
+            state.makeMove(GomokuAction.of(cell));
+            int score;
+            if (i == 0) {
+                score = -search(state, newDepth, -beta, -alpha, ply + 1);
+            } else {
+                // Prove the move is worse than the best so far with a null window, search again if it is not
+                score = -search(state, newDepth, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) score = -search(state, newDepth, -beta, -alpha, ply + 1);
+            }
+            state.backMove();
+
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = cell;
+                if (ply == 0) rootMove = cell;
+
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (killers[ply][0] != cell) {
+                            killers[ply][1] = killers[ply][0];
+                            killers[ply][0] = cell;
+                        }
+                        history[player][cell] += depth * depth;
+                        break;
+                    }
+                }
+            }
+        }
+
+        byte bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > alphaStart ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(hash, toTable(bestScore, ply), bestMove, Math.max(depth, 0), bound);
+        return bestScore;
+    }
+
+    // Static evaluation for the player to move, from the windows of 5 cells each player can still make five in
+    private int evaluate(GomokuFunctions state) {
+        int score = 0;
+
+        state.countPlayerWindows(windows);
+        for (int i = 1; i < windows.length; i++) score += WINDOW_SCORES[i] * windows[i];
+
+        state.countEnemyWindows(windows);
+        for (int i = 1; i < windows.length; i++) score -= WINDOW_SCORES[i] * windows[i];
+
+        return score;
+    }
+
+    // Fill moves[ply] with the moves to search and their ordering scores. Returns the number of moves
+    private int generateMoves(GomokuFunctions state, int ply, int tableMove) {
+        int size = 0;
+        mark++;
+
+        List<Action> enemyThreats = state.getEnemyThreats();
+        if (!enemyThreats.isEmpty()) {
+            size = addMoves(state.getEnemyThreats(), ply, size);
+        } else {
+            size = addMoves(state.getPlayerDoubleThreats(), ply, size);
+            size = addMoves(state.getEnemyDoubleThreats(), ply, size);
+            size = addMoves(state.getNeighboursUnion(), ply, size);
+            if (size == 0) {
+                int centre = (SIZE / 2) * SIZE + SIZE / 2;
+                size = state.isEmpty(SIZE / 2, SIZE / 2) ? addMove(centre, ply, size) : addMoves(state.getPossibleActions(), ply, size);
+            }
+        }
+
+        int player = state.isFirstPlayer() ? 0 : 1;
+        int[] plyMoves = moves[ply];
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < size; i++) {
+            int cell = plyMoves[i];
+            if (cell == tableMove) {
+                scores[i] = 1 << 30;
+            } else if (cell == killers[ply][0]) {
+                scores[i] = 1 << 29;
+            } else if (cell == killers[ply][1]) {
+                scores[i] = 1 << 28;
+            } else {
+                int threats = 8 * state.countPlayerFours(cell) + 4 * state.countEnemyFours(cell)
+                        + 2 * state.countPlayerThrees(cell) + state.countEnemyThrees(cell);
+                scores[i] = (threats << 20) + Math.min(history[player][cell], (1 << 20) - 1);
+            }
+        }
+
+        return size;
+    }
+
+    private int addMoves(List<Action> actions, int ply, int size) {
+        for (int i = 0; i < actions.size(); i++) {
+            size = addMove(((GomokuAction) actions.get(i)).getIndex(), ply, size);
+        }
+        return size;
+    }
+
+    private int addMove(int cell, int ply, int size) {
+        if (marks[cell] == mark) return size;
+        marks[cell] = mark;
+        moves[ply][size] = cell;
+        return size + 1;
+    }
+
+    // Move the best scored of the moves from index on to index, and return index
+    // Most nodes are cut off after a few moves, so this beats sorting the whole list
+    private int pickMove(int ply, int index, int size) {
+        int[] plyMoves = moves[ply];
+        int[] scores = moveScores[ply];
+
+        int best = index;
+        for (int i = index + 1; i < size; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+
+        int cell = plyMoves[best];
+        plyMoves[best] = plyMoves[index];
+        plyMoves[index] = cell;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return index;
+    }
+
+    // Wins are stored as the number of plies from the position, not from the root
+    private static int toTable(int score, int ply) {
+        if (score > WIN_BOUND) return score + ply;
+        if (score < -WIN_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > WIN_BOUND) return score - ply;
+        if (score < -WIN_BOUND) return score + ply;
+        return score;
+    }
+}
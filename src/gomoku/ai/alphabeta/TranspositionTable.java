@@ -0,0 +1,102 @@
+package gomoku.ai.alphabeta;
+
+import java.util.Arrays;
+
+// Search results of positions keyed by Zobrist hash (GomokuFunctions.getHash())
+// Open addressing in parallel primitive arrays. A hash goes in one of the 2 slots of its bucket,
+// replacing the entry from an earlier search first, then the one searched to the lowest depth
+
+class TranspositionTable {
+
+    // Kind of score
+    static final byte EXACT = 0;
+    static final byte LOWER = 1; // the score is at least this (the search failed high)
+    static final byte UPPER = 2; // the score is at most this (the search failed low)
+
+    private static final int ENTRY_BYTES = 8 + 4 + 2 + 1 + 1 + 1; // key, score, move, depth, bound, search
+
+    private final int mask;
+
+    private final long[] keys; // 0 for an empty slot
+    private final int[] scores;
+    private final short[] moves; // best move found, -1 if none
+    private final byte[] depths;
+    private final byte[] bounds;
+    private final byte[] searches; // value of search when the slot was written
+
+    private byte search; // incremented by newSearch()
+
+    TranspositionTable(int megabytes) {
+        // largest power of two that fits, in buckets of 2
+        long entries = Long.highestOneBit(Math.max(2, (long) megabytes * 1024 * 1024 / ENTRY_BYTES));
+        entries = Math.min(entries, 1 << 30);
+        mask = (int) entries - 1;
+
+        keys = new long[(int) entries];
+        scores = new int[(int) entries];
+        moves = new short[(int) entries];
+        depths = new byte[(int) entries];
+        bounds = new byte[(int) entries];
+        searches = new byte[(int) entries];
+    }
+
+    // Slot holding hash, or -1 if it is not in the table
+    int find(long hash) {
+        long key = key(hash);
+        int slot = (int) key & mask & ~1;
+        if (keys[slot] == key) return slot;
+        if (keys[slot + 1] == key) return slot + 1;
+        return -1;
+    }
+
+    int getScore(int slot) {
+        return scores[slot];
+    }
+
+    int getMove(int slot) {
+        return moves[slot];
+    }
+
+    int getDepth(int slot) {
+        return depths[slot];
+    }
+
+    byte getBound(int slot) {
+        return bounds[slot];
+    }
+
+    void store(long hash, int score, int move, int depth, byte bound) {
+        long key = key(hash);
+        int slot = (int) key & mask & ~1;
+        if (keys[slot] != key && (keys[slot + 1] == key || isWorse(slot + 1, slot))) slot++;
+
+        keys[slot] = key;
+        scores[slot] = score;
+        moves[slot] = (short) move;
+        depths[slot] = (byte) depth;
+        bounds[slot] = bound;
+        searches[slot] = search;
+    }
+
+    // Should slot be replaced before other?
+    private boolean isWorse(int slot, int other) {
+        if (keys[slot] == 0 || keys[other] == 0) return keys[slot] == 0;
+        if (searches[slot] != searches[other]) return searches[slot] != search;
+        return depths[slot] < depths[other];
+    }
+
+    // Tell the table that a new search has started, making older entries replaceable first
+    void newSearch() {
+        search++;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        search = 0;
+    }
+
+    // The empty board hashes to 0, which marks an empty slot
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+}
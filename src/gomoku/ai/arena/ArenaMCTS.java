@@ -0,0 +1,238 @@
+package gomoku.ai.arena;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.ai.TimeManager;
+import gomoku.book.OpeningBook;
+import gomoku.state.GomokuFunctions;
+import gomoku.state.State;
+
+import java.util.List;
+import java.util.Random;
+
+// Same search as gomoku.ai.mcts.MCTS, on a Tree of primitive arrays instead of Node objects
+// Two trees are kept: after a move, the subtree that is kept is copied into the other one
+
+public class ArenaMCTS implements AI {
+
+    private static final int N = 10000; // number of simulations when no time control is given
+    private static final int CAPACITY = 1 << 20; // nodes per tree
+
+    private final Random random = new Random();
+
+    private int iteration;
+
+    private Tree tree = new Tree(CAPACITY);
+    private Tree spare = new Tree(CAPACITY);
+    private int rootNode;
+    private GomokuFunctions rootState;
+
+    // Used when traversing the tree
+    private int currentNode;
+    private GomokuFunctions currentState;
+
+    // Time
+    private final TimeManager timeManager;
+    long timeStart, timeEnd;
+
+    private OpeningBook openingBook; // moves played without searching, null if not used
+
+    public ArenaMCTS() {
+        this(TimeManager.fixedIterations(N));
+    }
+
+    public ArenaMCTS(TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
+    @Override
+    public void reset() {
+        rootNode = tree.clear();
+        rootState = new GomokuFunctions();
+    }
+
+    @Override
+    public void setPosition(List<Action> moves) {
+        for (Action action : moves) {
+            play(action);
+        }
+    }
+
+    // Play moves from an opening book while it has them, instead of searching
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    @Override
+    public Action makeMove(State gameState, Action opponentAction) {
+        if (opponentAction != null) {
+            play(opponentAction);
+        }
+
+        Action bookMove = openingBook == null ? null : openingBook.getMove(rootState);
+        if (bookMove != null) {
+            if (Log.isEnabled()) Log.log("Arena MCTS book move");
+            play(bookMove);
+            return bookMove;
+        }
+
+        iteration = 0;
+        timeManager.startMove(rootState.getPly());
+        timeStart = System.currentTimeMillis();
+        while (timeRemaining()) {
+            iterate();
+        }
+        timeEnd = System.currentTimeMillis();
+        timeManager.endMove();
+
+        if (Log.isEnabled()) Log.log("Arena MCTS Speed: " + (double) iteration / (timeEnd - timeStart) * 1000);
+
+        Action action = GomokuAction.of(tree.moves[tree.bestMove(rootNode, random)]);
+        play(action);
+        return action;
+    }
+
+    // Play an action on the root and keep the matching subtree
+    private void play(Action action) {
+        rootState.makeMove(action);
+
+        int child = tree.child(rootNode, ((GomokuAction) action).getIndex());
+        if (child == -1) {
+            rootNode = tree.clear();
+            return;
+        }
+
+        rootNode = spare.copySubtree(tree, child);
+        Tree swap = tree;
+        tree = spare;
+        spare = swap;
+    }
+
+    private boolean timeRemaining() {
+        iteration++;
+
+        // The clock and the root children are only looked at every so often
+        if (!timeManager.isCheckpoint(iteration)) return true;
+
+        int best = -1, mostVisits = 0, secondVisits = 0;
+        if (tree.hasChildren(rootNode)) {
+            int first = tree.firstChild[rootNode];
+            for (int child = first; child < first + tree.childCounts[rootNode]; child++) {
+                int visits = tree.visits[child];
+                if (visits > mostVisits) {
+                    secondVisits = mostVisits;
+                    mostVisits = visits;
+                    best = child;
+                } else if (visits > secondVisits) {
+                    secondVisits = visits;
+                }
+            }
+        }
+
+        return !timeManager.isTimeUp(iteration, best, mostVisits, secondVisits);
+    }
+
+    private void iterate() {
+        currentNode = rootNode;
+        currentState = rootState;
+        int rootPly = rootState.getPly();
+
+        treePolicy();
+
+        // Get the score of a simulation in the perspective of the player at the leaf node (higher number means better)
+        boolean leafPlayer = !currentState.isFirstPlayer();
+        int score = simulate(currentState);
+        if (!leafPlayer) score = -score;
+
+        backpropagate(currentNode, score);
+
+        while (rootState.getPly() > rootPly) {
+            rootState.backMove();
+        }
+    }
+
+    private void treePolicy() {
+        while (!currentState.isTerminal()) {
+            if (tree.visits[currentNode] == 0) {
+                return;
+            }
+
+            if (!tree.hasChildren(currentNode)) {
+                // When the tree is full, simulate from the leaf without growing the tree
+                if (!tree.expand(currentNode, possibleActions(currentState))) return;
+
+                // Select next node and return
+                select();
+                return;
+            }
+
+            // Select next node
+            select();
+        }
+    }
+
+    private void select() {
+        currentNode = tree.bestChild(currentNode, random);
+        currentState.makeMove(GomokuAction.of(tree.moves[currentNode]));
+    }
+
+    // Actions to expand a node with
+    private List<Action> possibleActions(GomokuFunctions state) {
+        List<Action> possibleActions = state.getPlayerThreats();
+        if (possibleActions.size() == 0) possibleActions = state.getEnemyThreats();
+        if (possibleActions.size() == 0) possibleActions = state.getEnemyDoubleThreats();
+        if (possibleActions.size() == 0) possibleActions = state.getNeighboursUnion();
+        if (possibleActions.size() == 0) possibleActions = state.getPossibleActions();
+        return possibleActions;
+    }
+
+    private int simulate(GomokuFunctions state) {
+        while (!state.isTerminal()) {
+            state.makeMove(defaultPolicy(state));
+        }
+
+        return state.score();
+    }
+
+    // Return a move to play in simulation
+    private Action defaultPolicy(GomokuFunctions state) {
+        // Play a winning move
+        if (!state.getPlayerThreats().isEmpty()) {
+            return state.getPlayerThreats().get(0);
+        }
+
+        // Block an opponent's winning move
+        if (!state.getEnemyThreats().isEmpty()) {
+            return state.getEnemyThreats().get(0);
+        }
+
+        if (!state.getPlayerDoubleThreats().isEmpty()) {
+            return state.getPlayerDoubleThreats().get(0);
+        }
+
+        if (!state.getEnemyDoubleThreats().isEmpty()) {
+            return state.getEnemyDoubleThreats().get(random.nextInt(state.getEnemyDoubleThreats().size()));
+        }
+
+        List<Action> possibleActions = state.getNeighboursUnion();
+        if (possibleActions.size() > 0) {
+            return possibleActions.get(random.nextInt(possibleActions.size()));
+        }
+
+        possibleActions = state.getPossibleActions();
+        return possibleActions.get(random.nextInt(possibleActions.size()));
+    }
+
+    private void backpropagate(int node, int score) {
+        do {
+            tree.totalScores[node] += score;
+            tree.visits[node]++;
+
+            // Go to parent node and reverse scores for opposite player
+            node = tree.parents[node];
+            score = -score;
+        } while (node != -1);
+    }
+}
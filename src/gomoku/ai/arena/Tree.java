@@ -0,0 +1,182 @@
+package gomoku.ai.arena;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.ai.Log;
+
+import java.util.List;
+import java.util.Random;
+
+/*
+    MCTS tree stored as parallel primitive arrays (struct of arrays) instead of Node objects
+
+    A node is an int index. The children of a node are stored next to each other, starting at firstChild[node].
+    The arrays are allocated once and reused for every move and game, so the search creates no garbage.
+ */
+
+class Tree {
+
+    private static final double c = 0.5;
+
+    final int capacity; // maximum number of nodes
+    int size; // number of nodes in use
+
+    final int[] visits;
+    final double[] totalScores;
+    final int[] parents; // -1 for the root
+    final int[] firstChild; // -1 if not expanded
+    final short[] childCounts;
+    final short[] moves; // action index (x * SIZE + y) leading to the node, -1 for the root
+
+    Tree(int capacity) {
+        this.capacity = capacity;
+
+        visits = new int[capacity];
+        totalScores = new double[capacity];
+        parents = new int[capacity];
+        firstChild = new int[capacity];
+        childCounts = new short[capacity];
+        moves = new short[capacity];
+    }
+
+    // Remove all nodes and add a root. Returns the root
+    int clear() {
+        size = 0;
+        return newNode(-1, -1);
+    }
+
+    private int newNode(int parent, int move) {
+        int node = size++;
+        visits[node] = 0;
+        totalScores[node] = 0;
+        parents[node] = parent;
+        firstChild[node] = -1;
+        childCounts[node] = 0;
+        moves[node] = (short) move;
+        return node;
+    }
+
+    // Add one child per action. Returns false if the tree is full
+    boolean expand(int node, List<Action> possibleActions) {
+        if (size + possibleActions.size() > capacity) return false;
+
+        firstChild[node] = size;
+        childCounts[node] = (short) possibleActions.size();
+        for (int i = 0; i < possibleActions.size(); i++) {
+            newNode(node, ((GomokuAction) possibleActions.get(i)).getIndex());
+        }
+        return true;
+    }
+
+    boolean hasChildren(int node) {
+        return firstChild[node] != -1;
+    }
+
+    // Child of node reached by move, or -1 if there is none
+    int child(int node, int move) {
+        int first = firstChild[node];
+        if (first == -1) return -1;
+
+        for (int child = first; child < first + childCounts[node]; child++) {
+            if (moves[child] == move) return child;
+        }
+        return -1;
+    }
+
+    // Best child according to UCB formula
+    int bestChild(int node, Random random) {
+        int first = firstChild[node];
+        int end = first + childCounts[node];
+        int bestChild = -1;
+        double bestScore = -Double.MAX_VALUE;
+
+        double logVisits = Math.log(visits[node]);
+        int unvisited = 0;
+        for (int child = first; child < end; child++) {
+            if (visits[child] == 0) {
+                // pick a random child with 0 visits (reservoir sampling)
+                unvisited++;
+                if (random.nextInt(unvisited) == 0) bestChild = child;
+                continue;
+            }
+            if (unvisited > 0) continue;
+
+            // calculate score using the UCB formula
+            double uctScore = totalScores[child] / visits[child] + c * Math.sqrt(logVisits / visits[child]);
+            uctScore += random.nextDouble() / 10000; // very small tiebreaker
+
+            // best score so far?
+            if (uctScore >= bestScore) {
+                bestChild = child;
+                bestScore = uctScore;
+            }
+        }
+
+        return bestChild;
+    }
+
+    // Best child to play from node: the most visited one, ties broken by average score
+    // This is the child TimeManager watches when it stops the search early
+    int bestMove(int node, Random random) {
+        int first = firstChild[node];
+        int end = first + childCounts[node];
+        int bestChild = -1;
+        int mostVisits = 0;
+        double bestScore = -Double.MAX_VALUE;
+
+        for (int child = first; child < end; child++) {
+            // If child has not been visited once, do not select this child
+            if (visits[child] == 0) continue;
+
+            // calculate average score
+            double score = totalScores[child] / visits[child];
+            score += random.nextDouble() / 10000; // very small tiebreaker
+
+            // most visits so far, or as many with a better score?
+            if (visits[child] > mostVisits || (visits[child] == mostVisits && score >= bestScore)) {
+                bestChild = child;
+                mostVisits = visits[child];
+                bestScore = score;
+            }
+        }
+
+        if (Log.isEnabled()) Log.log(String.valueOf(bestScore));
+        return bestChild;
+    }
+
+    // Copy the subtree under node from another tree into this one, which is cleared first. Returns the new root
+    // Nodes are copied breadth first, so children stay next to each other. Stops expanding nodes if this tree fills up
+    int copySubtree(Tree from, int node) {
+        size = 0;
+        copyNode(from, node, -1);
+
+        // Every copied node waits in [next, size) until its children are copied
+        // Until then, firstChild holds the node's index in the source tree
+        for (int next = 0; next < size; next++) {
+            int source = firstChild[next];
+            int count = from.childCounts[source];
+            if (from.firstChild[source] == -1 || size + count > capacity) {
+                firstChild[next] = -1;
+                childCounts[next] = 0;
+                continue;
+            }
+
+            firstChild[next] = size;
+            childCounts[next] = (short) count;
+            for (int i = 0; i < count; i++) {
+                copyNode(from, from.firstChild[source] + i, next);
+            }
+        }
+
+        return 0;
+    }
+
+    private void copyNode(Tree from, int source, int parent) {
+        int node = size++;
+        visits[node] = from.visits[source];
+        totalScores[node] = from.totalScores[source];
+        parents[node] = parent;
+        firstChild[node] = source;
+        moves[node] = parent == -1 ? -1 : from.moves[source];
+    }
+}
@@ -1,7 +1,13 @@
 package gomoku.ai.mcts;
 
 import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.ai.ThreatSpaceSearch;
+import gomoku.ai.TimeManager;
 import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.book.OpeningBook;
+import gomoku.state.Gomoku;
 import gomoku.state.GomokuFunctions;
 import gomoku.state.State;
 
@@ -10,9 +16,12 @@ import java.util.Random;
 
 public class MCTS implements AI {
 
-    private final int N = 10000; // number of simulations
+    private static final int N = 10000; // number of simulations when no time control is given
+    private final boolean makeUnmake = true; // search on rootState and revert it with backMove() instead of copying it every iteration
+    private boolean patternPlayouts = false; // pick playout moves by the weights of their shapes instead of uniformly
+    private boolean rave = false; // keep AMAF statistics and blend them into the tree policy (see Node)
 
-    private static final Random random = new Random();
+    private final Random random = new Random();
 
     private int iteration;
 
@@ -23,63 +32,260 @@ public class MCTS implements AI {
     private Node currentNode;
     private GomokuFunctions currentState;
 
+    // Cells played in the current iteration, in the tree and then in the playout, for AMAF
+    private final short[] moves = new short[Gomoku.CELL_COUNT];
+    private int moveCount;
+    private final int[] playedAt = new int[Gomoku.CELL_COUNT]; // 1 + index of each cell in moves, 0 if not played
+
     // Time
+    private final TimeManager timeManager;
     long timeStart, timeEnd;
 
+    private OpeningBook openingBook; // moves played without searching, null if not used
+
+    // Forced wins by threats, searched for at the root and at every new leaf, null if not used
+    private static final int LEAF_THREAT_NODES = 100; // budget of the search at a leaf, it runs every iteration
+    private ThreatSpaceSearch threatSearch;
+
+    // Statistics shared between transposed positions, null if not used
+    private final TranspositionTable transpositionTable;
+
+    // Pondering
+    private static final int MAX_PONDER = 1000000; // iterations, to bound the size of the tree
+    private boolean ponder = false;
+    private volatile boolean pondering; // cleared to stop the ponder thread
+    private Thread ponderThread;
+    private int ponderIterations;
+
+    public MCTS() {
+        this(TimeManager.fixedIterations(N));
+    }
+
+    public MCTS(TimeManager timeManager) {
+        this(timeManager, null);
+    }
+
+    public MCTS(TimeManager timeManager, TranspositionTable transpositionTable) {
+        this.timeManager = timeManager;
+        this.transpositionTable = transpositionTable;
+    }
+
     @Override
     public void reset() {
+        stopPondering();
         rootNode = new Node();
         rootState = new GomokuFunctions();
+        if (patternPlayouts) rootState.useMoveWeights();
+        if (transpositionTable != null) transpositionTable.clear();
+    }
+
+    @Override
+    public void setPosition(List<Action> moves) {
+        stopPondering();
+        for (Action action : moves) {
+            play(action);
+        }
+    }
+
+    // Play moves from an opening book while it has them, instead of searching
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    // Playouts pick moves by weights from their local shape (see GomokuFunctions.sampleMove()), or uniformly
+    // among the neighbours of the stones. Takes effect from the next reset()
+    // Off by default: with the current hand-set weights a pattern playout costs about 1.7 uniform ones
+    // and did not win more games at the same number of iterations
+    public void setPatternPlayouts(boolean patternPlayouts) {
+        this.patternPlayouts = patternPlayouts;
+    }
+
+    // Rapid Action Value Estimation, off by default
+    public void setRave(boolean rave) {
+        this.rave = rave;
+    }
+
+    // Play forced wins found by threat-space search, and prove leaves lost when the opponent has one
+    public void setThreatSearch(ThreatSpaceSearch threatSearch) {
+        this.threatSearch = threatSearch;
     }
 
     @Override
     public Action makeMove(State gameState, Action opponentAction) {
+        stopPondering();
+
         if (opponentAction != null) {
-            rootState.makeMove(opponentAction);
-            rootNode = rootNode.nextNode(opponentAction);
-//            System.out.println(rootNode.visits);
-            rootNode.parent = null;
+            play(opponentAction);
+            if (Log.isEnabled()) Log.log("MCTS inherited visits: " + rootNode.visits);
+        }
+
+        Action bookMove = openingBook == null ? null : openingBook.getMove(rootState);
+        if (bookMove != null) {
+            if (Log.isEnabled()) Log.log("MCTS book move");
+            play(bookMove);
+            startPondering();
+            return bookMove;
+        }
+
+        if (threatSearch != null) {
+            Action threatMove = threatSearch.findVCF(rootState);
+            if (threatMove == null) threatMove = threatSearch.findVCT(rootState);
+            if (threatMove != null) {
+                if (Log.isEnabled()) Log.log("MCTS threat win");
+                play(threatMove);
+                startPondering();
+                return threatMove;
+            }
         }
 
+        if (transpositionTable != null) transpositionTable.newMove();
+
+        // A root proven by the leaf VCF check was never expanded, and there is no move to play from it
+        // Search it like an unproven root when the threat search above ran out of budget
+        if (rootNode.proven != Node.UNKNOWN && !rootNode.hasChildren()) rootNode.proven = Node.UNKNOWN;
+
         iteration = 0;
+        timeManager.startMove(rootState.getPly());
         timeStart = System.currentTimeMillis();
         while (timeRemaining()) {
             iterate();
         }
+        timeEnd = System.currentTimeMillis();
+        timeManager.endMove();
 
-        System.out.println("MCTS Speed: " + (double) iteration / (timeEnd - timeStart) * 1000);
+        if (Log.isEnabled()) Log.log("MCTS Speed: " + (double) iteration / (timeEnd - timeStart) * 1000);
 
-        ActionNodePair pair = rootNode.bestMove();
+        ActionNodePair pair = rootNode.bestMove(random);
         rootState.makeMove(pair.action);
         rootNode = pair.node;
+        rootNode.parent = null;
+        rootNode.hash = rootState.getCanonicalHash();
+
+        startPondering();
         return pair.action;
     }
 
+    // Keep searching on the opponent's time. The tree below the opponent's reply is kept by the next makeMove()
+    public void setPonder(boolean ponder) {
+        this.ponder = ponder;
+    }
+
+    private void startPondering() {
+        if (!ponder || rootState.isTerminal()) return;
+
+        pondering = true;
+        ponderIterations = 0;
+        ponderThread = new Thread(() -> {
+            while (pondering && ponderIterations < MAX_PONDER && rootNode.proven == Node.UNKNOWN) {
+                iterate();
+                ponderIterations++;
+            }
+        }, "MCTS ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    // Wait for the current iteration of the ponder thread to finish. The tree and rootState are ours again after this
+    private void stopPondering() {
+        if (ponderThread == null) return;
+
+        pondering = false;
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+
+        if (Log.isEnabled()) Log.log("MCTS ponder iterations: " + ponderIterations);
+    }
+
+    // Play an action on the root and keep the matching subtree
+    void play(Action action) {
+        rootState.makeMove(action);
+        rootNode = rootNode.nextNode(action);
+        rootNode.parent = null;
+        rootNode.hash = rootState.getCanonicalHash();
+    }
+
+    // Run a fixed number of iterations from the root without choosing a move
+    void search(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            iterate();
+        }
+    }
+
+    Node getRootNode() {
+        return rootNode;
+    }
+
     private boolean timeRemaining() {
         iteration++;
 
-        timeEnd = System.currentTimeMillis();
-//        return timeEnd - timeStart < 1000;
-        return iteration != N;
+        // Nothing left to search once the root is proven
+        if (rootNode.proven != Node.UNKNOWN) return false;
+
+        // The clock and the root children are only looked at every so often
+        if (!timeManager.isCheckpoint(iteration)) return true;
+
+        int best = -1, mostVisits = 0, secondVisits = 0;
+        if (rootNode.hasChildren()) {
+            for (int i = 0; i < rootNode.children.size(); i++) {
+                int visits = rootNode.children.get(i).visits;
+                if (visits > mostVisits) {
+                    secondVisits = mostVisits;
+                    mostVisits = visits;
+                    best = i;
+                } else if (visits > secondVisits) {
+                    secondVisits = visits;
+                }
+            }
+        }
+
+        return !timeManager.isTimeUp(iteration, best, mostVisits, secondVisits);
     }
 
     private void iterate() {
         currentNode = rootNode;
-        currentState = rootState.copy();
+        currentState = makeUnmake ? rootState : rootState.copy();
+        int rootPly = rootState.getPly();
+        moveCount = 0;
 
         treePolicy();
+        int treeMoves = moveCount;
+
+        // A won game is a proven win for the player who moved into the leaf
+        if (currentNode.proven == Node.UNKNOWN && currentState.isWon()) currentNode.proven = Node.WIN;
 
-        // Get the score of a simulation in the perspective of the player at the leaf node (higher number means better)
-        boolean leafPlayer = !currentState.isFirstPlayer();
-        int score = simulate(currentState);
-        if (!leafPlayer) score = -score;
+        // A new leaf where the player to move wins by continuous fours is a proven loss for the player who moved into it
+        if (threatSearch != null && currentNode.visits == 0 && currentNode.proven == Node.UNKNOWN && !currentState.isTerminal()
+                && threatSearch.findVCF(currentState, LEAF_THREAT_NODES) != null) {
+            currentNode.proven = Node.LOSS;
+        }
+
+        int score;
+        if (currentNode.proven != Node.UNKNOWN) {
+            // No need to simulate a proven node
+            score = currentNode.proven;
+        } else {
+            // Get the score of a simulation in the perspective of the player at the leaf node (higher number means better)
+            boolean leafPlayer = !currentState.isFirstPlayer();
+            score = simulate(currentState);
+            if (!leafPlayer) score = -score;
+        }
 
-        backpropagate(currentNode, score);
+        backpropagate(currentNode, treeMoves, score);
+
+        if (makeUnmake) {
+            while (rootState.getPly() > rootPly) {
+                rootState.backMove();
+            }
+        }
     }
 
     private void treePolicy() {
         while (!currentState.isTerminal()) {
-            if (currentNode.visits == 0) {
+            if (currentNode.visits == 0 || currentNode.proven != Node.UNKNOWN) {
                 return;
             }
 
@@ -87,27 +293,37 @@ public class MCTS implements AI {
                 currentNode.expand(currentState);
 
                 // Select next node and return
-                ActionNodePair bestChild = currentNode.bestChild();
+                ActionNodePair bestChild = currentNode.bestChild(random, transpositionTable);
+                record(bestChild.action);
                 currentState.makeMove(bestChild.action);
                 currentNode = bestChild.node;
+                currentNode.hash = currentState.getCanonicalHash();
                 return;
             }
 
             // Select next node
-            ActionNodePair bestChild = currentNode.bestChild();
+            ActionNodePair bestChild = currentNode.bestChild(random, transpositionTable);
+            record(bestChild.action);
             currentState.makeMove(bestChild.action);
             currentNode = bestChild.node;
+            currentNode.hash = currentState.getCanonicalHash();
         }
     }
 
     private int simulate(GomokuFunctions state) {
         while (!state.isTerminal()) {
-            state.makeMove(defaultPolicy(state));
+            Action action = defaultPolicy(state);
+            record(action);
+            state.makeMove(action);
         }
 
         return state.score();
     }
 
+    private void record(Action action) {
+        if (rave) moves[moveCount++] = (short) ((GomokuAction) action).getIndex();
+    }
+
     // Return a move to play in simulation
     private Action defaultPolicy(GomokuFunctions state) {
         // Play a winning move
@@ -128,6 +344,11 @@ public class MCTS implements AI {
             return state.getEnemyDoubleThreats().get(random.nextInt(state.getEnemyDoubleThreats().size()));
         }
 
+        if (patternPlayouts) {
+            Action action = state.sampleMove(random);
+            if (action != null) return action;
+        }
+
         List<Action> possibleActions = state.getNeighboursUnion();
         if (possibleActions.size() > 0) {
             return possibleActions.get(random.nextInt(possibleActions.size()));
@@ -137,14 +358,42 @@ public class MCTS implements AI {
         return possibleActions.get(random.nextInt(possibleActions.size()));
     }
 
-    private void backpropagate(Node node, int score) {
+    // depth is the number of tree moves from the root to node, moves[depth] is the first move played below it
+    private void backpropagate(Node node, int depth, int score) {
+        for (int i = 0; i < moveCount; i++) {
+            if (playedAt[moves[i]] == 0) playedAt[moves[i]] = i + 1;
+        }
+
+        boolean proving = node.proven != Node.UNKNOWN; // has the node below been proven, so that this one may be too?
         do {
             node.totalScore += score;
             node.visits++;
+            if (transpositionTable != null) transpositionTable.update(node.hash, score);
+            if (moveCount > 0 && node.hasChildren()) updateAmaf(node, depth, -score);
+
+            // MCTS-Solver: back up proven results like minimax, as long as they keep proving nodes
+            if (proving && node.proven == Node.UNKNOWN && node.hasChildren()) proving = node.updateProven();
 
             // Go to parent node and reverse scores for opposite player
             node = node.parent;
             score = -score;
+            depth--;
         } while (node != null);
+
+        for (int i = 0; i < moveCount; i++) {
+            playedAt[moves[i]] = 0;
+        }
+    }
+
+    // Credit each child of node whose move the player to move at node played at moves[depth] or later
+    // score is in the perspective of the player who moves into the children
+    private void updateAmaf(Node node, int depth, int score) {
+        for (int i = 0; i < node.children.size(); i++) {
+            int index = playedAt[((GomokuAction) node.edges.get(i)).getIndex()] - 1;
+            if (index >= depth && ((index - depth) & 1) == 0) {
+                node.amafVisits[i]++;
+                node.amafScores[i] += score;
+            }
+        }
     }
 }
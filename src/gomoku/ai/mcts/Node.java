@@ -1,6 +1,7 @@
 package gomoku.ai.mcts;
 
 import gomoku.action.Action;
+import gomoku.ai.Log;
 import gomoku.state.GomokuActionList;
 import gomoku.state.GomokuFunctions;
 
@@ -11,7 +12,17 @@ import java.util.Random;
 public class Node {
 
     private static final double c = 0.5;
-    private static final Random random = new Random();
+
+    // RAVE: a child's value blends its own average with its AMAF average, weighted by beta = sqrt(k / (3 * visits + k))
+    // so AMAF counts most while the child has few visits of its own
+    // http://www.cs.utexas.edu/~pstone/Courses/394Rspring13/resources/mcrave.pdf
+    private static final double RAVE_EQUIVALENCE = 1000; // k, visits at which both averages weigh the same
+
+    // Proven results (MCTS-Solver), in the perspective of the player who moved into the node, like totalScore
+    // https://dke.maastrichtuniversity.nl/m.winands/documents/uctloa.pdf
+    static final byte UNKNOWN = 0;
+    static final byte WIN = 1;
+    static final byte LOSS = -1;
 
     // link to parent and parents
     Node parent;
@@ -22,6 +33,15 @@ public class Node {
     int visits = 0;
     double totalScore = 0;
     double heuristic;
+    long hash; // Zobrist hash of the position, set when the node is first reached
+
+    // All moves as first (AMAF) statistics of each child: simulations where the player to move here played the child's
+    // move at any later point, not just now. Score in the perspective of the player who moves into the child
+    int[] amafVisits;
+    double[] amafScores;
+
+    byte proven = UNKNOWN;
+    boolean complete; // do the children cover every move that does not lose at once? Needed to prove a win from losses
 
     void expand(GomokuFunctions state) {
         List<Action> possibleActions = state.getPlayerThreats();
@@ -31,8 +51,16 @@ public class Node {
         if (possibleActions.size() == 0) possibleActions = state.getNeighboursUnion();
         if (possibleActions.size() == 0) possibleActions = state.getPossibleActions();
 
+        // Winning moves and blocks of the opponent's winning moves are the only moves that matter,
+        // so proving them lost proves the node. Any other subset leaves out moves that could save the game
+        complete = possibleActions == state.getPlayerThreats()
+                || possibleActions == state.getEnemyThreats()
+                || possibleActions == state.getPossibleActions();
+
         children = new ArrayList<>(possibleActions.size());
         edges = new ArrayList<>(possibleActions.size());
+        amafVisits = new int[possibleActions.size()];
+        amafScores = new double[possibleActions.size()];
 
         for (int i = 0; i < possibleActions.size(); i++) {
             Node child = new Node();
@@ -55,26 +83,71 @@ public class Node {
         return new Node();
     }
 
+    // Update proven from the children, after one of them was proven. Returns true if this node is now proven too
+    // Won for the player to move if a child is a loss for the opponent, lost if every child is a win for the opponent
+    boolean updateProven() {
+        boolean allLost = complete;
+        for (int i = 0; i < children.size(); i++) {
+            byte childProven = children.get(i).proven;
+            if (childProven == WIN) {
+                proven = LOSS;
+                return true;
+            }
+            if (childProven != LOSS) allLost = false;
+        }
+
+        if (allLost) proven = WIN;
+        return allLost;
+    }
+
     // Best child according to UCB formula
-    ActionNodePair bestChild() {
+    // random is passed in so that each search thread can use its own
+    // If there is a transposition table, a child's value comes from its position's shared statistics when those
+    // hold more visits, while exploration still uses the child's own visits
+    // Children proven lost for the player to move are skipped, unless every child is
+    // Children without visits are tried first, in random order, unless they have AMAF statistics to be judged by
+    ActionNodePair bestChild(Random random, TranspositionTable transpositionTable) {
+        ActionNodePair bestChild = bestChild(random, transpositionTable, true);
+        return bestChild != null ? bestChild : bestChild(random, transpositionTable, false);
+    }
+
+    private ActionNodePair bestChild(Random random, TranspositionTable transpositionTable, boolean skipLost) {
         int bestChildIndex = -1;
         double bestScore = -Double.MAX_VALUE;
 
         for (int i = 0; i < children.size(); i++) {
             Node child = children.get(i);
+            if (skipLost && child.proven == LOSS) continue;
 
-            if (child.visits == 0) {
+            if (child.visits == 0 && amafVisits[i] == 0) {
                 // return a random child with 0 visits
                 List<ActionNodePair> candidates = new ArrayList<>(children.size());
                 candidates.add(new ActionNodePair(edges.get(i), child));
                 for (int k = i + 1; k < children.size(); k++) {
-                    if (children.get(k).visits == 0) candidates.add(new ActionNodePair(edges.get(k), children.get(k)));
+                    if (children.get(k).visits == 0 && amafVisits[k] == 0) candidates.add(new ActionNodePair(edges.get(k), children.get(k)));
                 }
                 return candidates.get(random.nextInt(candidates.size()));
             }
 
             // calculate score using the UCB formula
-            double uctScore = child.totalScore / child.visits + c * Math.sqrt(Math.log(visits) / child.visits) + heuristic / child.visits;
+            double value = 0;
+            if (child.visits > 0) {
+                value = child.totalScore / child.visits;
+                if (transpositionTable != null) {
+                    int slot = transpositionTable.find(child.hash);
+                    if (slot != -1 && transpositionTable.getVisits(slot) > child.visits) {
+                        value = transpositionTable.getTotalScore(slot) / transpositionTable.getVisits(slot);
+                    }
+                }
+            }
+
+            if (amafVisits[i] > 0) {
+                double beta = Math.sqrt(RAVE_EQUIVALENCE / (3 * child.visits + RAVE_EQUIVALENCE));
+                value = beta * amafScores[i] / amafVisits[i] + (1 - beta) * value;
+            }
+
+            int childVisits = Math.max(child.visits, 1); // a child judged by AMAF alone explores like one visit
+            double uctScore = value + c * Math.sqrt(Math.log(visits) / childVisits) + heuristic / childVisits;
             uctScore += random.nextDouble() / 10000; // very small tiebreaker
 
             // best score so far?
@@ -84,12 +157,28 @@ public class Node {
             }
         }
 
+        if (bestChildIndex == -1) return null;
         return new ActionNodePair(edges.get(bestChildIndex), children.get(bestChildIndex));
     }
 
-    // Best action from this node
-    ActionNodePair bestMove() {
+    // Best action from this node. A proven win comes first, proven losses last
+    // Otherwise the most visited child, ties broken by average score. This is the child TimeManager watches when it
+    // stops the search early
+    ActionNodePair bestMove(Random random) {
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i).proven == WIN) {
+                if (Log.isEnabled()) Log.log("Proven win");
+                return new ActionNodePair(edges.get(i), children.get(i));
+            }
+        }
+
+        ActionNodePair bestMove = bestMove(random, true);
+        return bestMove != null ? bestMove : bestMove(random, false);
+    }
+
+    private ActionNodePair bestMove(Random random, boolean skipLost) {
         int bestChildIndex = -1;
+        int mostVisits = 0;
         double bestScore = -Double.MAX_VALUE;
 
         for (int i = 0; i < children.size(); i++) {
@@ -97,19 +186,23 @@ public class Node {
 
             // If child has not been visited once, do not select this child
             if (child.visits == 0) continue;
+            if (skipLost && child.proven == LOSS) continue;
 
             // calculate average score
             double score = child.totalScore / child.visits;
             score += random.nextDouble() / 10000; // very small tiebreaker
 
-            // best score so far?
-            if (score >= bestScore) {
+            // most visits so far, or as many with a better score?
+            if (child.visits > mostVisits || (child.visits == mostVisits && score >= bestScore)) {
                 bestChildIndex = i;
+                mostVisits = child.visits;
                 bestScore = score;
             }
         }
 
-        System.out.println(bestScore);
+        if (bestChildIndex == -1) return null;
+
+        if (Log.isEnabled()) Log.log(String.valueOf(bestScore));
         return new ActionNodePair(edges.get(bestChildIndex), children.get(bestChildIndex));
     }
 
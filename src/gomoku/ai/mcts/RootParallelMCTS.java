@@ -0,0 +1,134 @@
+package gomoku.ai.mcts;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.state.Gomoku;
+import gomoku.state.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Root parallelization: one independent MCTS tree per thread, merged at the root when choosing a move
+// https://dke.maastrichtuniversity.nl/m.winands/documents/multithreadedMCTS2.pdf
+
+public class RootParallelMCTS implements AI {
+
+    private final int N = 10000; // number of simulations per thread
+
+    private final Random random = new Random();
+
+    private final MCTS[] workers; // each worker has its own tree, Random and GomokuFunctions root
+    private final List<Callable<Void>> searches;
+    private final ExecutorService executor;
+
+    // Merged statistics of the root children, indexed by action index
+    private final int[] visits = new int[Gomoku.CELL_COUNT];
+    private final double[] totalScores = new double[Gomoku.CELL_COUNT];
+
+    // Time
+    long timeStart, timeEnd;
+
+    public RootParallelMCTS(int threads) {
+        workers = new MCTS[threads];
+        searches = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            MCTS worker = new MCTS();
+            workers[i] = worker;
+            searches.add(() -> {
+                worker.search(N);
+                return null;
+            });
+        }
+
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "RootParallelMCTS");
+            thread.setDaemon(true); // do not keep the program alive after the last game
+            return thread;
+        });
+    }
+
+    @Override
+    public void reset() {
+        for (MCTS worker : workers) {
+            worker.reset();
+        }
+    }
+
+    @Override
+    public void setPosition(List<Action> moves) {
+        for (MCTS worker : workers) {
+            worker.setPosition(moves);
+        }
+    }
+
+    @Override
+    public Action makeMove(State gameState, Action opponentAction) {
+        if (opponentAction != null) {
+            for (MCTS worker : workers) {
+                worker.play(opponentAction);
+            }
+        }
+
+        timeStart = System.currentTimeMillis();
+        try {
+            for (Future<Void> future : executor.invokeAll(searches)) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Root parallel search failed", e);
+        }
+        timeEnd = System.currentTimeMillis();
+
+        if (Log.isEnabled()) Log.log("Root Parallel MCTS Speed: " + (double) N * workers.length / (timeEnd - timeStart) * 1000);
+
+        Action action = bestMove();
+        for (MCTS worker : workers) {
+            worker.play(action);
+        }
+        return action;
+    }
+
+    // Most visited action over all trees, ties broken by average score
+    private Action bestMove() {
+        for (MCTS worker : workers) {
+            Node root = worker.getRootNode();
+            for (int i = 0; i < root.children.size(); i++) {
+                int index = ((GomokuAction) root.edges.get(i)).getIndex();
+                visits[index] += root.children.get(i).visits;
+                totalScores[index] += root.children.get(i).totalScore;
+            }
+        }
+
+        int bestIndex = -1;
+        int mostVisits = 0;
+        double bestScore = -Double.MAX_VALUE;
+        for (int i = 0; i < Gomoku.CELL_COUNT; i++) {
+            // If an action has not been visited once, do not select it
+            if (visits[i] != 0) {
+                double score = totalScores[i] / visits[i];
+                score += random.nextDouble() / 10000; // very small tiebreaker
+
+                // most visits so far, or as many with a better score?
+                if (visits[i] > mostVisits || (visits[i] == mostVisits && score >= bestScore)) {
+                    bestIndex = i;
+                    mostVisits = visits[i];
+                    bestScore = score;
+                }
+
+                visits[i] = 0;
+                totalScores[i] = 0;
+            }
+        }
+
+        if (Log.isEnabled()) Log.log(String.valueOf(bestScore));
+        return GomokuAction.of(bestIndex);
+    }
+}
@@ -0,0 +1,129 @@
+package gomoku.ai.mcts;
+
+import java.util.Arrays;
+
+// Statistics of positions keyed by Zobrist hash, shared by every Node that reaches the same position
+// The same stones can be placed in many orders, so the tree is really a DAG. UCT on a DAG: http://alum.wpi.edu/~jbrodeur/cig08.pdf
+//
+// Open addressing in parallel primitive arrays. A hash is stored in one of BUCKET_SIZE slots starting at
+// its home slot. When all of them are taken, the Replacement policy picks the entry to overwrite.
+
+public class TranspositionTable {
+
+    public enum Replacement {
+        LEAST_VISITED, // overwrite the entry with the fewest visits, entries from earlier moves first
+        OLDEST // overwrite the entry written longest ago
+    }
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int ENTRY_BYTES = 8 + 4 + 8 + 4 + 4; // key, visits, totalScore, age, move
+
+    private final Replacement replacement;
+    private final int mask;
+
+    private final long[] keys; // 0 for an empty slot
+    private final int[] visits;
+    private final double[] totalScores; // in the perspective of the player who moved into the position
+    private final int[] ages; // value of writes when the slot was last written
+    private final int[] moves; // value of move when the slot was last written
+
+    private int writes;
+    private int move; // incremented by newMove()
+
+    public TranspositionTable(int megabytes, Replacement replacement) {
+        this.replacement = replacement;
+
+        // largest power of two that fits
+        long entries = Long.highestOneBit(Math.max(BUCKET_SIZE, (long) megabytes * 1024 * 1024 / ENTRY_BYTES));
+        entries = Math.min(entries, 1 << 30);
+        mask = (int) entries - 1;
+
+        keys = new long[(int) entries];
+        visits = new int[(int) entries];
+        totalScores = new double[(int) entries];
+        ages = new int[(int) entries];
+        moves = new int[(int) entries];
+    }
+
+    public TranspositionTable(int megabytes) {
+        this(megabytes, Replacement.LEAST_VISITED);
+    }
+
+    // Slot holding hash, or -1 if it is not in the table
+    int find(long hash) {
+        long key = key(hash);
+        int slot = (int) key & mask;
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    int getVisits(int slot) {
+        return visits[slot];
+    }
+
+    double getTotalScore(int slot) {
+        return totalScores[slot];
+    }
+
+    // Add the result of a simulation through the position with this hash
+    void update(long hash, int score) {
+        long key = key(hash);
+        int home = (int) key & mask;
+
+        int victim = -1;
+        int slot = home;
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            if (keys[slot] == key) {
+                victim = slot;
+                break;
+            }
+            if (keys[slot] == 0) {
+                if (victim == -1 || keys[victim] != 0) victim = slot;
+            } else if (victim == -1 || (keys[victim] != 0 && isWorse(slot, victim))) {
+                victim = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (keys[victim] != key) {
+            keys[victim] = key;
+            visits[victim] = 0;
+            totalScores[victim] = 0;
+        }
+
+        visits[victim]++;
+        totalScores[victim] += score;
+        ages[victim] = writes++;
+        moves[victim] = move;
+    }
+
+    // Should slot be replaced before victim?
+    private boolean isWorse(int slot, int victim) {
+        if (replacement == Replacement.OLDEST) {
+            return ages[slot] - ages[victim] < 0;
+        }
+
+        // entries from earlier moves go first, then the least visited
+        if (moves[slot] != moves[victim]) return moves[slot] - moves[victim] < 0;
+        return visits[slot] < visits[victim];
+    }
+
+    // Tell the table that the search has moved on to a new move, making older entries replaceable first
+    public void newMove() {
+        move++;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        writes = 0;
+        move = 0;
+    }
+
+    // The empty board hashes to 0, which marks an empty slot
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+}
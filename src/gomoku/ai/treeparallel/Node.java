@@ -0,0 +1,151 @@
+package gomoku.ai.treeparallel;
+
+import gomoku.action.Action;
+import gomoku.ai.Log;
+import gomoku.state.GomokuFunctions;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+// Node that many threads can descend at once
+// Statistics are updated with atomic field updaters (no locks, no extra objects per node)
+// Virtual loss: a thread passing through a node counts as a lost visit until it backpropagates,
+// so that other threads are pushed towards different children
+
+public class Node {
+
+    private static final double c = 0.5;
+
+    private static final AtomicIntegerFieldUpdater<Node> VISITS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+    private static final AtomicIntegerFieldUpdater<Node> TOTAL_SCORE = AtomicIntegerFieldUpdater.newUpdater(Node.class, "totalScore");
+    private static final AtomicIntegerFieldUpdater<Node> VIRTUAL_LOSS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "virtualLoss");
+    private static final AtomicIntegerFieldUpdater<Node> EXPANDING = AtomicIntegerFieldUpdater.newUpdater(Node.class, "expanding");
+
+    // link to parent and children
+    Node parent;
+    volatile Node[] children; // written once, after edges
+    Action[] edges;
+
+    // values that this node carries
+    volatile int visits = 0;
+    volatile int totalScore = 0; // scores are -1, 0 or 1, so an int is enough
+    volatile int virtualLoss = 0; // threads currently below this node
+    private volatile int expanding = 0; // 1 once a thread has claimed the expansion
+
+    // Expand this node if no other thread has. Returns false if another thread got there first
+    boolean expand(GomokuFunctions state) {
+        if (!EXPANDING.compareAndSet(this, 0, 1)) return false;
+
+        List<Action> possibleActions = state.getPlayerThreats();
+        if (possibleActions.size() == 0) possibleActions = state.getEnemyThreats();
+        if (possibleActions.size() == 0) possibleActions = state.getEnemyDoubleThreats();
+        if (possibleActions.size() == 0) possibleActions = state.getNeighboursUnion();
+        if (possibleActions.size() == 0) possibleActions = state.getPossibleActions();
+
+        Node[] newChildren = new Node[possibleActions.size()];
+        edges = new Action[possibleActions.size()];
+
+        for (int i = 0; i < newChildren.length; i++) {
+            Node child = new Node();
+            child.parent = this;
+
+            newChildren[i] = child;
+            edges[i] = possibleActions.get(i);
+        }
+
+        children = newChildren; // publish to other threads
+        return true;
+    }
+
+    // Index of the best child according to the UCB formula, counting virtual losses
+    int bestChild(Random random) {
+        Node[] children = this.children;
+        int bestChildIndex = -1;
+        double bestScore = -Double.MAX_VALUE;
+        int unvisited = 0;
+
+        double logVisits = Math.log(visits + virtualLoss);
+        for (int i = 0; i < children.length; i++) {
+            Node child = children[i];
+            int childVirtualLoss = child.virtualLoss;
+            int childVisits = child.visits + childVirtualLoss;
+
+            if (childVisits == 0) {
+                // pick a random child with 0 visits (reservoir sampling)
+                unvisited++;
+                if (random.nextInt(unvisited) == 0) bestChildIndex = i;
+                continue;
+            }
+            if (unvisited > 0) continue;
+
+            // calculate score using the UCB formula
+            double uctScore = (double) (child.totalScore - childVirtualLoss) / childVisits + c * Math.sqrt(logVisits / childVisits);
+            uctScore += random.nextDouble() / 10000; // very small tiebreaker
+
+            // best score so far?
+            if (uctScore >= bestScore) {
+                bestChildIndex = i;
+                bestScore = uctScore;
+            }
+        }
+
+        return bestChildIndex;
+    }
+
+    // Index of the best action from this node: the most visited child, ties broken by average score
+    // Only call when no thread is searching
+    int bestMove(Random random) {
+        int bestChildIndex = -1;
+        int mostVisits = 0;
+        double bestScore = -Double.MAX_VALUE;
+
+        for (int i = 0; i < children.length; i++) {
+            Node child = children[i];
+
+            // If child has not been visited once, do not select this child
+            if (child.visits == 0) continue;
+
+            // calculate average score
+            double score = (double) child.totalScore / child.visits;
+            score += random.nextDouble() / 10000; // very small tiebreaker
+
+            // most visits so far, or as many with a better score?
+            if (child.visits > mostVisits || (child.visits == mostVisits && score >= bestScore)) {
+                bestChildIndex = i;
+                mostVisits = child.visits;
+                bestScore = score;
+            }
+        }
+
+        if (Log.isEnabled()) Log.log(String.valueOf(bestScore));
+        return bestChildIndex;
+    }
+
+    Node nextNode(Action edge) {
+        if (children == null) return new Node();
+
+        for (int i = 0; i < edges.length; i++) {
+            if (edge.equals(edges[i])) {
+                return children[i];
+            }
+        }
+
+        return new Node();
+    }
+
+    void addVirtualLoss() {
+        VIRTUAL_LOSS.incrementAndGet(this);
+    }
+
+    // Record the result of a simulation and remove the virtual loss added on the way down
+    void update(int score) {
+        TOTAL_SCORE.addAndGet(this, score);
+        VISITS.incrementAndGet(this);
+        VIRTUAL_LOSS.decrementAndGet(this);
+    }
+
+    boolean hasChildren() {
+        return children != null;
+    }
+}
@@ -0,0 +1,203 @@
+package gomoku.ai.treeparallel;
+
+import gomoku.action.Action;
+import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.state.GomokuFunctions;
+import gomoku.state.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Tree parallelization: all threads search the same tree, kept apart by virtual loss
+// https://dke.maastrichtuniversity.nl/m.winands/documents/multithreadedMCTS2.pdf
+
+public class TreeParallelMCTS implements AI {
+
+    private final int N = 10000; // number of simulations, shared by all threads
+
+    private final Random random = new Random();
+
+    private final AtomicInteger iteration = new AtomicInteger();
+
+    private Node rootNode;
+    private GomokuFunctions rootState;
+
+    private final List<Callable<Void>> searches;
+    private final ExecutorService executor;
+
+    // Time
+    long timeStart, timeEnd;
+
+    public TreeParallelMCTS(int threads) {
+        searches = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Random threadRandom = new Random();
+            searches.add(() -> {
+                search(rootState.copy(), threadRandom);
+                return null;
+            });
+        }
+
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "TreeParallelMCTS");
+            thread.setDaemon(true); // do not keep the program alive after the last game
+            return thread;
+        });
+    }
+
+    @Override
+    public void reset() {
+        rootNode = new Node();
+        rootState = new GomokuFunctions();
+    }
+
+    @Override
+    public void setPosition(List<Action> moves) {
+        for (Action action : moves) {
+            play(action);
+        }
+    }
+
+    @Override
+    public Action makeMove(State gameState, Action opponentAction) {
+        if (opponentAction != null) {
+            play(opponentAction);
+        }
+
+        iteration.set(0);
+        timeStart = System.currentTimeMillis();
+        try {
+            for (Future<Void> future : executor.invokeAll(searches)) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Tree parallel search failed", e);
+        }
+        timeEnd = System.currentTimeMillis();
+
+        // Every thread takes one more value from the counter than it searches, the one that makes it stop
+        int iterations = iteration.get() - searches.size();
+        if (Log.isEnabled()) Log.log("Tree Parallel MCTS Speed: " + (double) iterations / (timeEnd - timeStart) * 1000);
+
+        Action action = rootNode.edges[rootNode.bestMove(random)];
+        play(action);
+        return action;
+    }
+
+    private void play(Action action) {
+        rootState.makeMove(action);
+        rootNode = rootNode.nextNode(action);
+        rootNode.parent = null;
+    }
+
+    // Run by every thread on its own copy of rootState
+    private void search(GomokuFunctions state, Random random) {
+        while (iteration.getAndIncrement() < N) {
+            iterate(state, random);
+        }
+    }
+
+    private void iterate(GomokuFunctions state, Random random) {
+        int rootPly = state.getPly();
+        Node node = treePolicy(state, random);
+
+        // Get the score of a simulation in the perspective of the player at the leaf node (higher number means better)
+        boolean leafPlayer = !state.isFirstPlayer();
+        int score = simulate(state, random);
+        if (!leafPlayer) score = -score;
+
+        backpropagate(node, score);
+
+        while (state.getPly() > rootPly) {
+            state.backMove();
+        }
+    }
+
+    // Walk down the tree, adding a virtual loss to every node passed. Returns the leaf
+    private Node treePolicy(GomokuFunctions state, Random random) {
+        Node node = rootNode;
+        node.addVirtualLoss();
+
+        while (!state.isTerminal()) {
+            if (node.visits == 0) {
+                return node;
+            }
+
+            if (!node.hasChildren()) {
+                // If another thread is expanding this node, simulate from here instead of waiting
+                if (!node.expand(state)) return node;
+
+                // Select next node and return
+                return select(node, state, random);
+            }
+
+            // Select next node
+            node = select(node, state, random);
+        }
+
+        return node;
+    }
+
+    private Node select(Node node, GomokuFunctions state, Random random) {
+        int bestChild = node.bestChild(random);
+        Node child = node.children[bestChild];
+        child.addVirtualLoss();
+        state.makeMove(node.edges[bestChild]);
+        return child;
+    }
+
+    private int simulate(GomokuFunctions state, Random random) {
+        while (!state.isTerminal()) {
+            state.makeMove(defaultPolicy(state, random));
+        }
+
+        return state.score();
+    }
+
+    // Return a move to play in simulation
+    private Action defaultPolicy(GomokuFunctions state, Random random) {
+        // Play a winning move
+        if (!state.getPlayerThreats().isEmpty()) {
+            return state.getPlayerThreats().get(0);
+        }
+
+        // Block an opponent's winning move
+        if (!state.getEnemyThreats().isEmpty()) {
+            return state.getEnemyThreats().get(0);
+        }
+
+        if (!state.getPlayerDoubleThreats().isEmpty()) {
+            return state.getPlayerDoubleThreats().get(0);
+        }
+
+        if (!state.getEnemyDoubleThreats().isEmpty()) {
+            return state.getEnemyDoubleThreats().get(random.nextInt(state.getEnemyDoubleThreats().size()));
+        }
+
+        List<Action> possibleActions = state.getNeighboursUnion();
+        if (possibleActions.size() > 0) {
+            return possibleActions.get(random.nextInt(possibleActions.size()));
+        }
+
+        possibleActions = state.getPossibleActions();
+        return possibleActions.get(random.nextInt(possibleActions.size()));
+    }
+
+    private void backpropagate(Node node, int score) {
+        do {
+            node.update(score);
+
+            // Go to parent node and reverse scores for opposite player
+            node = node.parent;
+            score = -score;
+        } while (node != null);
+    }
+}
@@ -1,6 +1,7 @@
 package gomoku.ai.uneven;
 
 import gomoku.action.Action;
+import gomoku.ai.Log;
 import gomoku.state.GomokuFunctions;
 
 import java.util.ArrayList;
@@ -10,7 +11,6 @@ import java.util.Random;
 public class Node {
 
     private static final double c = 0.5;
-    private static final Random random = new Random();
 
     // link to parent and parents
     Node parent;
@@ -40,8 +40,22 @@ public class Node {
         }
     }
 
+    // Child reached by edge, or a new node if there is none
+    Node nextNode(Action edge) {
+        if (edges == null) return new Node();
+
+        for (int i = 0; i < edges.size(); i++) {
+            if (edge.equals(edges.get(i))) {
+                return children.get(i);
+            }
+        }
+
+        return new Node();
+    }
+
     // Best child according to UCB formula
-    ActionNodePair bestChild() {
+    // random is passed in so that each engine instance uses its own
+    ActionNodePair bestChild(Random random) {
         int bestChildIndex = -1;
         double bestScore = -Double.MAX_VALUE;
 
@@ -72,9 +86,11 @@ public class Node {
         return new ActionNodePair(edges.get(bestChildIndex), children.get(bestChildIndex));
     }
 
-    // Best action from this node
-    Action bestMove() {
+    // Best action from this node: the most visited child, ties broken by average score
+    // This is the child TimeManager watches when it stops the search early
+    Action bestMove(Random random) {
         int bestChildIndex = -1;
+        int mostVisits = 0;
         double bestScore = -Double.MAX_VALUE;
 
         for (int i = 0; i < children.size(); i++) {
@@ -87,14 +103,15 @@ public class Node {
             double score = child.totalScore / child.visits;
             score += random.nextDouble() / 10000; // very small tiebreaker
 
-            // best score so far?
-            if (score >= bestScore) {
+            // most visits so far, or as many with a better score?
+            if (child.visits > mostVisits || (child.visits == mostVisits && score >= bestScore)) {
                 bestChildIndex = i;
+                mostVisits = child.visits;
                 bestScore = score;
             }
         }
 
-        System.out.println(bestScore);
+        if (Log.isEnabled()) Log.log(String.valueOf(bestScore));
         return edges.get(bestChildIndex);
     }
 
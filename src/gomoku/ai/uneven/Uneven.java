@@ -2,6 +2,9 @@ package gomoku.ai.uneven;
 
 import gomoku.action.Action;
 import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.ai.TimeManager;
+import gomoku.book.OpeningBook;
 import gomoku.state.GomokuFunctions;
 import gomoku.state.State;
 
@@ -10,9 +13,10 @@ import java.util.Random;
 
 public class Uneven implements AI {
 
-    private final int N = 10000; // number of simulations
+    private static final int N = 10000; // number of simulations when no time control is given
+    private final boolean makeUnmake = true; // search on rootState and revert it with backMove() instead of copying it every iteration
 
-    private static final Random random = new Random();
+    private final Random random = new Random();
 
     private int iteration;
 
@@ -24,48 +28,151 @@ public class Uneven implements AI {
     private GomokuFunctions currentState;
 
     // Time
+    private final TimeManager timeManager;
     long timeStart, timeEnd;
 
+    private OpeningBook openingBook; // moves played without searching, null if not used
+
+    // Pondering
+    private static final int MAX_PONDER = 1000000; // iterations, to bound the size of the tree
+    private boolean ponder = false;
+    private volatile boolean pondering; // cleared to stop the ponder thread
+    private Thread ponderThread;
+    private int ponderIterations;
+
+    public Uneven() {
+        this(TimeManager.fixedIterations(N));
+    }
+
+    public Uneven(TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
     @Override
     public void reset() {
+        stopPondering();
         rootNode = new Node();
         rootState = new GomokuFunctions();
     }
 
+    @Override
+    public void setPosition(List<Action> moves) {
+        stopPondering();
+        for (Action action : moves) {
+            play(action);
+        }
+    }
+
+    // Play moves from an opening book while it has them, instead of searching
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
     @Override
     public Action makeMove(State gameState, Action opponentAction) {
+        stopPondering();
+
         if (opponentAction != null) {
-            rootState.makeMove(opponentAction);
+            play(opponentAction);
         }
 
-        // perhaps you wouldn't want to make a new tree every time the AI makes a move
-        // something like rootNode = rootNode.child would be nicer than this
-        rootNode = new Node();
+        Action bookMove = openingBook == null ? null : openingBook.getMove(rootState);
+        if (bookMove != null) {
+            if (Log.isEnabled()) Log.log("Uneven book move");
+            play(bookMove);
+            startPondering();
+            return bookMove;
+        }
+
+        if (Log.isEnabled()) Log.log("Uneven inherited visits: " + rootNode.visits);
 
         iteration = 0;
+        timeManager.startMove(rootState.getPly());
         timeStart = System.currentTimeMillis();
         while (timeRemaining()) {
             iterate();
         }
+        timeEnd = System.currentTimeMillis();
+        timeManager.endMove();
 
-        System.out.println("Uneven Speed: " + (double) iteration / (timeEnd - timeStart) * 1000);
+        if (Log.isEnabled()) Log.log("Uneven Speed: " + (double) iteration / (timeEnd - timeStart) * 1000);
 
-        Action action = rootNode.bestMove();
-        rootState.makeMove(action);
+        Action action = rootNode.bestMove(random);
+        play(action);
+
+        startPondering();
         return action;
     }
 
+    // Keep searching on the opponent's time. The tree below the opponent's reply is kept by the next makeMove()
+    public void setPonder(boolean ponder) {
+        this.ponder = ponder;
+    }
+
+    private void startPondering() {
+        if (!ponder || rootState.isTerminal()) return;
+
+        pondering = true;
+        ponderIterations = 0;
+        ponderThread = new Thread(() -> {
+            while (pondering && ponderIterations < MAX_PONDER) {
+                iterate();
+                ponderIterations++;
+            }
+        }, "Uneven ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    // Wait for the current iteration of the ponder thread to finish. The tree and rootState are ours again after this
+    private void stopPondering() {
+        if (ponderThread == null) return;
+
+        pondering = false;
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+
+        if (Log.isEnabled()) Log.log("Uneven ponder iterations: " + ponderIterations);
+    }
+
+    // Play an action on the root and keep the subtree below it
+    private void play(Action action) {
+        rootState.makeMove(action);
+        rootNode = rootNode.nextNode(action);
+        rootNode.parent = null; // let the rest of the tree be collected
+    }
+
     private boolean timeRemaining() {
         iteration++;
 
-        timeEnd = System.currentTimeMillis();
-//        return timeEnd - timeStart < 1000;
-        return iteration != N;
+        // The clock and the root children are only looked at every so often
+        if (!timeManager.isCheckpoint(iteration)) return true;
+
+        int best = -1, mostVisits = 0, secondVisits = 0;
+        if (rootNode.hasChildren()) {
+            for (int i = 0; i < rootNode.children.size(); i++) {
+                int visits = rootNode.children.get(i).visits;
+                if (visits > mostVisits) {
+                    secondVisits = mostVisits;
+                    mostVisits = visits;
+                    best = i;
+                } else if (visits > secondVisits) {
+                    secondVisits = visits;
+                }
+            }
+        }
+
+        return !timeManager.isTimeUp(iteration, best, mostVisits, secondVisits);
     }
 
     private void iterate() {
         currentNode = rootNode;
-        currentState = rootState.copy();
+        currentState = makeUnmake ? rootState : rootState.copy();
+        int rootPly = rootState.getPly();
 
         treePolicy();
 
@@ -75,6 +182,12 @@ public class Uneven implements AI {
         if (!leafPlayer) score = -score;
 
         backpropagate(currentNode, score);
+
+        if (makeUnmake) {
+            while (rootState.getPly() > rootPly) {
+                rootState.backMove();
+            }
+        }
     }
 
     private void treePolicy() {
@@ -87,14 +200,14 @@ public class Uneven implements AI {
                 currentNode.expand(currentState);
 
                 // Select next node and return
-                ActionNodePair bestChild = currentNode.bestChild();
+                ActionNodePair bestChild = currentNode.bestChild(random);
                 currentState.makeMove(bestChild.action);
                 currentNode = bestChild.node;
                 return;
             }
 
             // Select next node
-            ActionNodePair bestChild = currentNode.bestChild();
+            ActionNodePair bestChild = currentNode.bestChild(random);
             currentState.makeMove(bestChild.action);
             currentNode = bestChild.node;
         }
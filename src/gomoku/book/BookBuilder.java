@@ -0,0 +1,115 @@
+package gomoku.book;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.record.RecordReader;
+import gomoku.state.GomokuFunctions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Collects move statistics of games and writes them as an OpeningBook file
+// Positions are stored in their canonical orientation, so a game teaches the book about all 8 symmetric positions
+//
+// Usage: java gomoku.book.BookBuilder <record file> <book file> [max ply] [min games]
+
+public class BookBuilder {
+
+    private final int maxPly; // moves after this are not added
+
+    // key of a position -> cell of a move -> {games, halfPoints}
+    private final Map<Long, Map<Integer, int[]>> positions = new HashMap<>();
+
+    public BookBuilder(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    // Add a game. result is in the perspective of the first player: 1 win, 0 draw, -1 loss
+    public void add(List<Action> moves, int result) {
+        GomokuFunctions state = new GomokuFunctions();
+
+        for (int ply = 0; ply < maxPly && ply < moves.size(); ply++) {
+            GomokuAction action = (GomokuAction) moves.get(ply);
+
+            long key = state.getCanonicalHash();
+            int cell = state.toCanonical(action).getIndex();
+
+            int[] statistics = positions.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(cell, k -> new int[2]);
+            statistics[0]++;
+            int moverResult = ply % 2 == 0 ? result : -result; // the first player moves on even plies
+            statistics[1] += moverResult + 1;
+
+            state.makeMove(action);
+        }
+    }
+
+    // Add every game of a record file (see gomoku.record)
+    public void addRecords(Path path) throws IOException {
+        List<Action> moves = new ArrayList<>(maxPly);
+        RecordReader.forEach(path, record -> {
+            moves.clear();
+            for (int i = 0; i < record.getMoveCount() && i < maxPly; i++) {
+                moves.add(record.getMove(i));
+            }
+            add(moves, record.getResult());
+        });
+    }
+
+    // Write the moves played in at least minGames games
+    public void write(Path path, int minGames) throws IOException {
+        List<Long> keys = new ArrayList<>(positions.keySet());
+        Collections.sort(keys);
+
+        int size = 0;
+        for (Map<Integer, int[]> moves : positions.values()) {
+            for (int[] statistics : moves.values()) {
+                if (statistics[0] >= minGames) size++;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile()), 1 << 16))) {
+            out.write(OpeningBook.MAGIC);
+            out.writeInt(size);
+
+            for (long key : keys) {
+                Map<Integer, int[]> moves = positions.get(key);
+                List<Integer> cells = new ArrayList<>(moves.keySet());
+                Collections.sort(cells);
+
+                for (int cell : cells) {
+                    int[] statistics = moves.get(cell);
+                    if (statistics[0] < minGames) continue;
+
+                    out.writeLong(key);
+                    out.writeShort(cell);
+                    out.writeInt(statistics[0]);
+                    out.writeInt(statistics[1]);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: BookBuilder <record file> <book file> [max ply] [min games]");
+            return;
+        }
+
+        int maxPly = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        int minGames = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        BookBuilder builder = new BookBuilder(maxPly);
+        builder.addRecords(Paths.get(args[0]));
+        builder.write(Paths.get(args[1]), minGames);
+        System.out.println(builder.positions.size() + " positions");
+    }
+}
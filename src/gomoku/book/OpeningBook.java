@@ -0,0 +1,108 @@
+package gomoku.book;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.state.GomokuFunctions;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+    Opening book, read in place through a MappedByteBuffer
+    A lookup is a binary search over the mapped file, and processes using the same book share its pages
+
+    File (written by BookBuilder): MAGIC, int number of entries, then the entries sorted by key, then cell
+    Entry, ENTRY_BYTES:
+    - long key: hash of the position in its canonical orientation (GomokuFunctions.getCanonicalHash())
+    - short cell: move played from the position, in the canonical orientation
+    - int games: games the move was played in
+    - int halfPoints: points of the player who played the move, 2 for a win and 1 for a draw
+ */
+
+public class OpeningBook {
+
+    static final byte[] MAGIC = {'G', 'M', 'K', 'B'};
+    static final int HEADER_BYTES = MAGIC.length + 4;
+    static final int ENTRY_BYTES = 8 + 2 + 4 + 4;
+
+    private static final int MIN_GAMES = 10; // default number of games a move needs to be played from the book
+
+    private final MappedByteBuffer buffer;
+    private final int size; // number of entries
+    private final int minGames;
+
+    public OpeningBook(Path path, int minGames) throws IOException {
+        this.minGames = minGames;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.capacity() < HEADER_BYTES || buffer.get(i) != MAGIC[i]) throw new IOException("Not an opening book file");
+        }
+        size = buffer.getInt(MAGIC.length);
+        if ((long) HEADER_BYTES + (long) size * ENTRY_BYTES > buffer.capacity()) throw new IOException("Truncated opening book");
+    }
+
+    public OpeningBook(Path path) throws IOException {
+        this(path, MIN_GAMES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Move with the best score from the position, or null if the book has no move played in at least minGames games
+    public Action getMove(GomokuFunctions state) {
+        long key = state.getCanonicalHash();
+
+        int best = -1;
+        double bestScore = -1;
+        for (int entry = firstEntry(key); entry < size && key(entry) == key; entry++) {
+            int games = games(entry);
+            if (games < minGames) continue;
+
+            double score = (double) halfPoints(entry) / (2 * games);
+            if (score > bestScore) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+        if (best == -1) return null;
+
+        // Back from the canonical orientation to the board's
+        GomokuAction action = state.fromCanonical(GomokuAction.of(cell(best)));
+        return state.isEmpty(action) ? action : null; // a different position with the same hash
+    }
+
+    // First entry with a key not less than key
+    private int firstEntry(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key(middle) < key) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private long key(int entry) {
+        return buffer.getLong(HEADER_BYTES + entry * ENTRY_BYTES);
+    }
+
+    private int cell(int entry) {
+        return buffer.getShort(HEADER_BYTES + entry * ENTRY_BYTES + 8);
+    }
+
+    private int games(int entry) {
+        return buffer.getInt(HEADER_BYTES + entry * ENTRY_BYTES + 10);
+    }
+
+    private int halfPoints(int entry) {
+        return buffer.getInt(HEADER_BYTES + entry * ENTRY_BYTES + 14);
+    }
+}
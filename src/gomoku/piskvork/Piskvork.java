@@ -0,0 +1,308 @@
+package gomoku.piskvork;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.ai.ThreatSpaceSearch;
+import gomoku.ai.TimeManager;
+import gomoku.ai.alphabeta.AlphaBeta;
+import gomoku.ai.arena.ArenaMCTS;
+import gomoku.ai.examplerandom.RandomAI;
+import gomoku.ai.mcts.MCTS;
+import gomoku.ai.uneven.Uneven;
+import gomoku.book.OpeningBook;
+import gomoku.state.Gomoku;
+import gomoku.state.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Plays any AI through the Piskvork protocol on stdin/stdout, as used by Gomocup and its tournament managers
+    https://plastovicka.github.io/protocl2en.htm
+
+    Usage: java gomoku.piskvork.Piskvork [mcts|arena|uneven|alphabeta|random] [-v] [-p] [-t] [-b book]
+    -v sends what the engine logs (speed, scores) to the manager as MESSAGE lines
+    -p ponders (keeps searching) while the opponent thinks, for engines that support it
+    -t plays forced wins found by threat-space search and uses it to prove positions, for engines that support it
+    -b plays from an opening book file (see gomoku.book), for engines that support it
+
+    Piskvork coordinates have (0, 0) in the top left corner, ours in the bottom left corner.
+ */
+
+public class Piskvork {
+
+    private static final int SIZE = Gomoku.SIZE;
+
+    private static final long DEFAULT_TURN_TIME = 5000; // ms per move until the manager sends timeout_turn
+    private static final long NO_MATCH_LIMIT = 1000L * 60 * 60 * 24; // time left when timeout_match is 0 (no limit)
+
+    private final PrintStream out;
+    private final TimeManager timeManager = new TimeManager(NO_MATCH_LIMIT, 0);
+    private final AI ai;
+
+    private State state;
+    private final List<Action> moves = new ArrayList<>(Gomoku.CELL_COUNT); // moves of the game so far
+
+    public Piskvork(String engine, boolean ponder, boolean threats, OpeningBook book, PrintStream out) {
+        this.out = out;
+        this.ai = engine(engine, ponder, threats, book, timeManager);
+        timeManager.setTurnLimit(DEFAULT_TURN_TIME);
+    }
+
+    private static AI engine(String name, boolean ponder, boolean threats, OpeningBook book, TimeManager timeManager) {
+        switch (name.toLowerCase()) {
+            case "mcts":
+                MCTS mcts = new MCTS(timeManager);
+                mcts.setPonder(ponder);
+                mcts.setOpeningBook(book);
+                if (threats) mcts.setThreatSearch(new ThreatSpaceSearch());
+                return mcts;
+            case "arena":
+                ArenaMCTS arena = new ArenaMCTS(timeManager);
+                arena.setOpeningBook(book);
+                return arena;
+            case "uneven":
+                Uneven uneven = new Uneven(timeManager);
+                uneven.setPonder(ponder);
+                uneven.setOpeningBook(book);
+                return uneven;
+            case "alphabeta":
+                AlphaBeta alphaBeta = new AlphaBeta(timeManager);
+                alphaBeta.setOpeningBook(book);
+                return alphaBeta;
+            case "random":
+                return new RandomAI();
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String engine = "mcts";
+        boolean verbose = false;
+        boolean ponder = false;
+        boolean threats = false;
+        OpeningBook book = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-v")) verbose = true;
+            else if (args[i].equals("-p")) ponder = true;
+            else if (args[i].equals("-t")) threats = true;
+            else if (args[i].equals("-b") && i + 1 < args.length) book = new OpeningBook(Paths.get(args[++i]));
+            else engine = args[i];
+        }
+
+        PrintStream out = System.out;
+        if (verbose) Log.setLogger(message -> out.println("MESSAGE " + message));
+
+        Piskvork piskvork = new Piskvork(engine, ponder, threats, book, out);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!piskvork.command(line.trim(), in)) break;
+            out.flush();
+        }
+    }
+
+    // Handle one command. Returns false when the manager asks the engine to quit
+    boolean command(String line, BufferedReader in) throws IOException {
+        if (line.isEmpty()) return true;
+
+        String[] tokens = line.split("\\s+", 2);
+        String command = tokens[0].toUpperCase();
+        String argument = tokens.length > 1 ? tokens[1].trim() : "";
+
+        switch (command) {
+            case "START":
+                if (parseInt(argument, -1) != SIZE) {
+                    out.println("ERROR only a board size of " + SIZE + " is supported");
+                    break;
+                }
+                newGame();
+                out.println("OK");
+                break;
+            case "RESTART":
+                newGame();
+                out.println("OK");
+                break;
+            case "BEGIN":
+                if (!started()) break;
+                play(null);
+                break;
+            case "TURN": {
+                if (!started()) break;
+                Action action = parseEmptyCell(argument);
+                if (action == null) break;
+                state.makeMove(action);
+                moves.add(action);
+                play(action);
+                break;
+            }
+            case "BOARD":
+                if (!started()) break;
+                board(in);
+                break;
+            case "TAKEBACK": {
+                if (!started()) break;
+                Action action = parseCell(argument);
+                if (action == null) break;
+                if (moves.isEmpty() || !moves.get(moves.size() - 1).equals(action)) {
+                    out.println("ERROR " + argument + " is not the last move");
+                    break;
+                }
+                moves.remove(moves.size() - 1);
+                setPosition(moves);
+                out.println("OK");
+                break;
+            }
+            case "INFO":
+                info(argument);
+                break;
+            case "ABOUT":
+                out.println("name=\"Gomoku\", version=\"1.0\"");
+                break;
+            case "END":
+                return false;
+            default:
+                out.println("UNKNOWN " + command);
+        }
+        return true;
+    }
+
+    private boolean started() {
+        if (state == null) out.println("ERROR no START command yet");
+        return state != null;
+    }
+
+    private void newGame() {
+        setPosition(new ArrayList<>());
+    }
+
+    // Start over from the position reached by these moves
+    private void setPosition(List<Action> position) {
+        List<Action> copy = new ArrayList<>(position);
+
+        moves.clear();
+        state = new Gomoku();
+        for (Action action : copy) {
+            state.makeMove(action);
+            moves.add(action);
+        }
+
+        ai.reset();
+        ai.setPosition(copy);
+    }
+
+    // Ask the AI for a move and send it. opponentAction is the move the AI has not been told about yet
+    private void play(Action opponentAction) {
+        if (state.isTerminal()) {
+            out.println("ERROR the game is over");
+            return;
+        }
+
+        Action action = ai.makeMove(state, opponentAction);
+        state.makeMove(action);
+        moves.add(action);
+
+        GomokuAction move = (GomokuAction) action;
+        out.println(move.getX() + "," + (SIZE - 1 - move.getY()));
+    }
+
+    // BOARD: lines of x,y,who until DONE. who is 1 for our stones and 2 for the opponent's
+    // The order stones were played in is not given, so the two colours are interleaved, first player first
+    private void board(BufferedReader in) throws IOException {
+        List<Action> own = new ArrayList<>();
+        List<Action> opponent = new ArrayList<>();
+
+        String line;
+        while ((line = in.readLine()) != null && !line.trim().equalsIgnoreCase("DONE")) {
+            String[] fields = line.trim().split(",");
+            if (fields.length != 3) continue;
+
+            Action action = parseCell(fields[0] + "," + fields[1]);
+            if (action == null) return;
+            if (own.contains(action) || opponent.contains(action)) {
+                out.println("ERROR " + fields[0] + "," + fields[1] + " is given twice");
+                return;
+            }
+            if (fields[2].trim().equals("1")) own.add(action);
+            else opponent.add(action);
+        }
+
+        // We are to move, so the first player is whoever has more stones, or us if it is equal
+        List<Action> first = own.size() >= opponent.size() ? own : opponent;
+        List<Action> second = first == own ? opponent : own;
+        if (first.size() - second.size() > 1 || (first == own && own.size() != opponent.size())) {
+            out.println("ERROR impossible number of stones");
+            return;
+        }
+
+        List<Action> position = new ArrayList<>(own.size() + opponent.size());
+        for (int i = 0; i < first.size(); i++) {
+            position.add(first.get(i));
+            if (i < second.size()) position.add(second.get(i));
+        }
+
+        setPosition(position);
+        play(null);
+    }
+
+    private void info(String argument) {
+        String[] tokens = argument.split("\\s+", 2);
+        if (tokens.length < 2) return;
+
+        long value = parseInt(tokens[1], -1);
+        switch (tokens[0].toLowerCase()) {
+            case "timeout_turn":
+                if (value >= 0) timeManager.setTurnLimit(Math.max(value, 1)); // 0 means play as fast as possible
+                break;
+            case "timeout_match":
+                if (value == 0) timeManager.setTimeLeft(NO_MATCH_LIMIT);
+                break;
+            case "time_left":
+                if (value >= 0) timeManager.setTimeLeft(value);
+                break;
+            default:
+                // max_memory, game_type, rule, folder, ... are not used
+        }
+    }
+
+    // x,y in Piskvork coordinates. Sends an error and returns null if it is not on the board
+    private Action parseCell(String argument) {
+        String[] fields = argument.split(",");
+        int x = fields.length == 2 ? parseInt(fields[0], -1) : -1;
+        int y = fields.length == 2 ? parseInt(fields[1], -1) : -1;
+
+        if (x < 0 || x >= SIZE || y < 0 || y >= SIZE) {
+            out.println("ERROR bad move " + argument);
+            return null;
+        }
+
+        return GomokuAction.of(x, SIZE - 1 - y);
+    }
+
+    // Same as parseCell(), but the cell must also be empty
+    private Action parseEmptyCell(String argument) {
+        Action action = parseCell(argument);
+        if (action != null && !state.getPossibleActions().contains(action)) {
+            out.println("ERROR " + argument + " is not empty");
+            return null;
+        }
+        return action;
+    }
+
+    private static int parseInt(String text, int otherwise) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return otherwise;
+        }
+    }
+}
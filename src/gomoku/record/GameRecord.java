@@ -0,0 +1,97 @@
+package gomoku.record;
+
+import gomoku.action.GomokuAction;
+
+import java.nio.ByteBuffer;
+
+/*
+    One game in a record file, read in place from a buffer
+
+    File: MAGIC, then records one after the other. A record is a 16 byte header and one byte per move
+    offset  size
+    0       1     result in the perspective of the first player: 1 win, 0 draw, -1 loss
+    1       1     flags: bit 0 set if engine A played first
+    2       1     number of opening moves (played before the engines took over)
+    3       1     number of moves, opening included
+    4       2     id of engine A
+    6       2     id of engine B
+    8       4     thinking time of engine A in ms
+    12      4     thinking time of engine B in ms
+    16      n     moves as cells (x * SIZE + y), first move first
+
+    Instances are reused by RecordReader, so copy what you need before the next record is read
+ */
+
+public class GameRecord {
+
+    static final byte[] MAGIC = {'G', 'M', 'K', '1'};
+    static final int HEADER_BYTES = 16;
+    static final int MAX_BYTES = HEADER_BYTES + 225;
+
+    static final int A_FIRST = 1;
+
+    private ByteBuffer buffer;
+    private int offset; // start of the record in buffer
+
+    void set(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    // Number of bytes of the record starting at offset
+    static int size(ByteBuffer buffer, int offset) {
+        return HEADER_BYTES + (buffer.get(offset + 3) & 0xFF);
+    }
+
+    public int getResult() {
+        return buffer.get(offset);
+    }
+
+    public boolean isAFirst() {
+        return (buffer.get(offset + 1) & A_FIRST) != 0;
+    }
+
+    // Result in the perspective of engine A
+    public int getResultA() {
+        return isAFirst() ? getResult() : -getResult();
+    }
+
+    public int getOpeningLength() {
+        return buffer.get(offset + 2) & 0xFF;
+    }
+
+    public int getMoveCount() {
+        return buffer.get(offset + 3) & 0xFF;
+    }
+
+    public short getEngineA() {
+        return buffer.getShort(offset + 4);
+    }
+
+    public short getEngineB() {
+        return buffer.getShort(offset + 6);
+    }
+
+    public int getTimeA() {
+        return buffer.getInt(offset + 8);
+    }
+
+    public int getTimeB() {
+        return buffer.getInt(offset + 12);
+    }
+
+    // Cell (x * SIZE + y) of a move
+    public int getCell(int move) {
+        return buffer.get(offset + HEADER_BYTES + move) & 0xFF;
+    }
+
+    public GomokuAction getMove(int move) {
+        return GomokuAction.of(getCell(move));
+    }
+
+    // Id of an engine name, the same in every run. Used for the engine ids of a record
+    public static short engineId(String name) {
+        int hash = name.hashCode();
+        return (short) (hash ^ (hash >>> 16));
+    }
+}
@@ -0,0 +1,62 @@
+package gomoku.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+// Streams the games of a record file (format in GameRecord) through a memory mapped window
+// Games are read in place: one GameRecord is reused for every game, so nothing is allocated per game.
+// The window is moved forward CHUNK_SIZE bytes at a time, so files larger than 2 GB work too
+
+public class RecordReader {
+
+    private static final int CHUNK_SIZE = 1 << 26; // 64 MB
+
+    // Give every game of the file to action, in the order they were written. Returns the number of games
+    public static long forEach(Path path, Consumer<GameRecord> action) throws IOException {
+        GameRecord record = new GameRecord();
+        long games = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            checkMagic(channel, size);
+
+            long position = GameRecord.MAGIC.length; // start of the window in the file
+            while (position < size) {
+                int length = (int) Math.min(CHUNK_SIZE, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                // Read every record that is complete in the window. A record cut by the end of the window is read
+                // from the next window, which starts at that record
+                int offset = 0;
+                while (offset + GameRecord.HEADER_BYTES <= length) {
+                    int recordSize = GameRecord.size(buffer, offset);
+                    if (offset + recordSize > length) break;
+
+                    record.set(buffer, offset);
+                    action.accept(record);
+                    games++;
+                    offset += recordSize;
+                }
+
+                if (offset == 0) break; // the file ends in the middle of a record (Ex. the writer was killed)
+                position += offset;
+            }
+        }
+
+        return games;
+    }
+
+    private static void checkMagic(FileChannel channel, long size) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(GameRecord.MAGIC.length);
+        if (size >= magic.capacity()) channel.read(magic, 0);
+
+        for (int i = 0; i < magic.capacity(); i++) {
+            if (magic.get(i) != GameRecord.MAGIC[i]) throw new IOException("Not a game record file");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package gomoku.record;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Appends games to a record file (format in GameRecord)
+// Writes are buffered, so close() or flush() before reading the file
+
+public class RecordWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final ByteBuffer record = ByteBuffer.allocate(GameRecord.MAX_BYTES);
+
+    public RecordWriter(File file) throws IOException {
+        boolean isNew = !file.exists() || file.length() == 0;
+        out = new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE);
+        if (isNew) out.write(GameRecord.MAGIC);
+    }
+
+    // result: in the perspective of the first player. times: ms spent thinking by each engine
+    public synchronized void write(int result, boolean aFirst, int openingLength, short engineA, short engineB,
+                                   int timeA, int timeB, List<Action> moves) throws IOException {
+        record.clear();
+        record.put((byte) result);
+        record.put((byte) (aFirst ? GameRecord.A_FIRST : 0));
+        record.put((byte) openingLength);
+        record.put((byte) moves.size());
+        record.putShort(engineA);
+        record.putShort(engineB);
+        record.putInt(timeA);
+        record.putInt(timeB);
+        for (int i = 0; i < moves.size(); i++) {
+            record.put((byte) ((GomokuAction) moves.get(i)).getIndex());
+        }
+
+        out.write(record.array(), 0, record.position());
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
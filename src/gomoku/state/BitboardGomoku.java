@@ -0,0 +1,315 @@
+package gomoku.state;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.AbstractList;
+import java.util.List;
+
+/*
+    Gomoku with the board stored as bitboards instead of int[][] grid
+
+    Every stone is kept twice:
+    - stones: the whole board as 225 bits, four longs per player. Bit (x * SIZE + y)
+    - lines: one 15 bit mask per row, column and diagonal, per player. Used for win detection
+
+    Plays exactly the same games as Gomoku (same getPossibleActions() order), but copy()
+    is a handful of System.arraycopy calls and isWon() is a few shifts and masks per line.
+ */
+
+public class BitboardGomoku implements State {
+
+    private static final int SIZE = Gomoku.SIZE;
+    private static final int CELL_COUNT = Gomoku.CELL_COUNT;
+
+    // Offsets of each direction in lines[]
+    private static final int HORIZONTAL = 0; // - one line per y, bit x
+    private static final int VERTICAL = HORIZONTAL + SIZE; // | one line per x, bit y
+    private static final int DIAGONAL = VERTICAL + SIZE; // / one line per x - y, bit x
+    private static final int ANTI_DIAGONAL = DIAGONAL + 2 * SIZE - 1; // \ one line per x + y, bit x
+    private static final int LINE_COUNT = ANTI_DIAGONAL + 2 * SIZE - 1; // lines per player
+
+    // User input
+    private static final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+
+    private final long[] stones = new long[8]; // stones[player * 4 + (cell >>> 6)]
+    private final int[] lines = new int[2 * LINE_COUNT]; // lines[player * LINE_COUNT + line]
+
+    private int playerToMove; // 0 for first player, 1 for second player
+    private int ply; // move number
+
+    private final short[] history = new short[CELL_COUNT]; // cell played at every ply
+
+    // Possible actions stored as cells. Same ordering rules as GomokuActionList
+    // The number of possible actions is always CELL_COUNT - ply
+    private final short[] actions = new short[CELL_COUNT];
+    private final short[] actionIndex = new short[CELL_COUNT]; // index of a cell in actions[], -1 if occupied
+
+    private List<Action> possibleActions; // view of actions[], created on first use
+
+    private StringBuilder board; // used by printGame(), created on first use
+
+    // Create a game
+    public BitboardGomoku() {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            actions[i] = (short) i;
+            actionIndex[i] = (short) i;
+        }
+    }
+
+    private BitboardGomoku(BitboardGomoku from) {
+        System.arraycopy(from.stones, 0, stones, 0, stones.length);
+        System.arraycopy(from.lines, 0, lines, 0, lines.length);
+        System.arraycopy(from.history, 0, history, 0, from.ply);
+        System.arraycopy(from.actions, 0, actions, 0, CELL_COUNT - from.ply);
+        System.arraycopy(from.actionIndex, 0, actionIndex, 0, CELL_COUNT);
+
+        playerToMove = from.playerToMove;
+        ply = from.ply;
+    }
+
+    @Override
+    public BitboardGomoku copy() {
+        return new BitboardGomoku(this);
+    }
+
+    private void makeMove(int x, int y, int index) {
+        int cell = x * SIZE + y;
+        stones[playerToMove * 4 + (cell >>> 6)] |= 1L << cell;
+
+        int offset = playerToMove * LINE_COUNT;
+        lines[offset + HORIZONTAL + y] |= 1 << x;
+        lines[offset + VERTICAL + x] |= 1 << y;
+        lines[offset + DIAGONAL + x - y + SIZE - 1] |= 1 << x;
+        lines[offset + ANTI_DIAGONAL + x + y] |= 1 << x;
+
+        playerToMove = playerToMove == 0 ? 1 : 0;
+        history[ply++] = (short) cell;
+
+        // remove action from possible actions, moving the last action into its place
+        int last = actions[CELL_COUNT - ply];
+        actions[index] = (short) last;
+        actionIndex[last] = (short) index;
+        actionIndex[cell] = -1;
+    }
+
+    @Override
+    public void makeMove(Action a) {
+        GomokuAction action = (GomokuAction) a;
+        int index = actionIndex[action.getIndex()];
+
+        // check before any state is changed, so that the state is still valid after the exception
+        if (index == -1) {
+            throw new IllegalArgumentException("Cell is not empty: " + action.getX() + ", " + action.getY());
+        }
+        makeMove(action.getX(), action.getY(), index);
+    }
+
+    @Override
+    public void makeMove(int index) {
+        int cell = actions[index];
+        makeMove(cell / SIZE, cell % SIZE, index);
+    }
+
+    @Override
+    public List<Action> getPossibleActions() {
+        if (possibleActions == null) {
+            possibleActions = new AbstractList<Action>() {
+                @Override
+                public Action get(int index) {
+                    return GomokuAction.of(actions[index]);
+                }
+
+                @Override
+                public int size() {
+                    return CELL_COUNT - ply;
+                }
+
+                @Override
+                public int indexOf(Object o) {
+                    return actionIndex[((GomokuAction) o).getIndex()];
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return indexOf(o) != -1;
+                }
+            };
+        }
+        return possibleActions;
+    }
+
+    @Override
+    public boolean isFirstPlayer() {
+        return playerToMove == 0;
+    }
+
+    @Override
+    public int score() {
+        // 1 if won for the first player, 0 if draw, -1 if won for the second player
+        // assumes isTerminal() is true
+        if (isWon()) return isFirstPlayer() ? -1 : 1;
+        else return 0;
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return isWon() || isDrawn();
+    }
+
+    public boolean isDrawn() {
+        // It is assumed that isWon() is checked before this method is called
+        return ply == CELL_COUNT;
+    }
+
+    // Check for a win based on the last move played
+    public boolean isWon() {
+        if (ply == 0) return false; // there is no last move played if ply is 0
+
+        int cell = history[ply - 1];
+        int x = cell / SIZE;
+        int y = cell % SIZE;
+        int offset = (playerToMove == 0 ? 1 : 0) * LINE_COUNT; // the player that made the last move
+
+        return hasFive(lines[offset + HORIZONTAL + y], x)
+                || hasFive(lines[offset + VERTICAL + x], y)
+                || hasFive(lines[offset + DIAGONAL + x - y + SIZE - 1], x)
+                || hasFive(lines[offset + ANTI_DIAGONAL + x + y], x);
+    }
+
+    // Are there IN_A_ROW consecutive bits in line going through bit position?
+    private static boolean hasFive(int line, int position) {
+        line &= (0x1FF << position) >>> 4; // only bits within 4 of position can be part of the same five
+        return (line & (line >>> 1) & (line >>> 2) & (line >>> 3) & (line >>> 4)) != 0;
+    }
+
+    // 0 for empty, 1 for first player, 2 for second player
+    private int getCell(int x, int y) {
+        int cell = x * SIZE + y;
+        long bit = 1L << cell;
+        if ((stones[cell >>> 6] & bit) != 0) return 1;
+        if ((stones[4 + (cell >>> 6)] & bit) != 0) return 2;
+        return 0;
+    }
+
+    // is a cell empty?
+    private boolean isEmpty(int x, int y) {
+        return actionIndex[x * SIZE + y] != -1;
+    }
+
+    // get user input
+    @Override
+    public Action userMove() {
+        System.out.println("Input a move! Ex. A2");
+
+        while (true) {
+            String line;
+            int x, y;
+
+            try {
+                line = in.readLine();
+
+                if (line.contains(" ")) { // just in case the user inputs something like A 2
+                    String[] tokens = line.split(" ");
+                    x = tokens[0].toUpperCase().charAt(0) - 'A';
+                    y = Integer.parseInt(tokens[1]) - 1;
+                } else {
+                    x = line.toUpperCase().charAt(0) - 'A';
+                    y = Integer.parseInt(line.substring(1)) - 1;
+                }
+
+                if (x < 0 || x >= SIZE || y < 0 || y >= SIZE) {
+                    System.out.println("Out of bounds. Please select another action.");
+                    continue;
+                }
+
+                if (!isEmpty(x, y)) {
+                    System.out.println("You must choose an empty cell!");
+                    continue;
+                }
+            } catch (Exception e) {
+                System.out.println("Please follow the examplerandom format.");
+                continue;
+            }
+
+            return GomokuAction.of(x, y);
+        }
+    }
+
+    // Print the game using the standard system of indexing Go boards
+    // The whole board is built in one reusable StringBuilder and printed at once
+    @Override
+    public void printGame() {
+        if (board == null) board = new StringBuilder(2400);
+        board.setLength(0);
+
+        appendLetters();
+        appendSeparator();
+
+        for (int i = 0; i < SIZE; i++) {
+            appendNumber(SIZE - i);
+            board.append(" |");
+            for (int j = 0; j < SIZE; j++) {
+                int cell = getCell(j, SIZE - 1 - i);
+                if (cell == 0) {
+                    board.append("   ");
+                } else if (cell == 1) {
+                    board.append(" X ");
+                } else {
+                    board.append(" O ");
+                }
+                board.append('|');
+            }
+            board.append(' ');
+            appendNumber(SIZE - i);
+            board.append('\n');
+
+            appendSeparator();
+        }
+
+        appendLetters();
+        board.append('\n');
+
+        System.out.print(board);
+    }
+
+    private void appendLetters() {
+        board.append("  ");
+        for (int i = 0; i < SIZE; i++) {
+            board.append("   ").append((char) ('A' + i));
+        }
+        board.append('\n');
+    }
+
+    private void appendSeparator() {
+        board.append("   -");
+        for (int j = 0; j < SIZE; j++) {
+            board.append("----");
+        }
+        board.append('\n');
+    }
+
+    // Same as String.format("%2d", number)
+    private void appendNumber(int number) {
+        if (number < 10) board.append(' ');
+        board.append(number);
+    }
+
+    public int[][] getGrid() {
+        int[][] grid = new int[SIZE][SIZE];
+
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                grid[i][j] = getCell(i, j);
+            }
+        }
+
+        return grid;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+}
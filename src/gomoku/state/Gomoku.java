@@ -32,6 +32,8 @@ public class Gomoku implements State {
 
     List possibleActions;
 
+    private StringBuilder board; // used by printGame(), created on first use
+
     // Create a game
     public Gomoku() {
         playerToMove = 0;
@@ -44,7 +46,7 @@ public class Gomoku implements State {
 //        int index = 0;
         for (int i = 0; i < SIZE; i++) {
             for (int j = 0; j < SIZE; j++) {
-                possibleActions.add(new GomokuAction(i, j));
+                possibleActions.add(GomokuAction.of(i, j));
 //                actionIndex[i][j] = index++;
             }
         }
@@ -76,7 +78,7 @@ public class Gomoku implements State {
         if (grid[x][y] != 0) {
             printGame();
             System.out.println("NO. YOU ARE ATTEMPTING TO CHEAT! error occured in makeMove(int x, int y);");
-            (new GomokuAction(x, y)).print();
+            GomokuAction.of(x, y).print();
 
             Thread.dumpStack();
             System.exit(-1);
@@ -246,7 +248,7 @@ public class Gomoku implements State {
                 continue;
             }
 
-            return new GomokuAction(x, y);
+            return GomokuAction.of(x, y);
         }
     }
 
@@ -256,53 +258,61 @@ public class Gomoku implements State {
     }
 
     // Print the game using the standard system of indexing Go boards
+    // The whole board is built in one reusable StringBuilder and printed at once
     @Override
     public void printGame() {
-        String line = "";
+        if (board == null) board = new StringBuilder(2400);
+        board.setLength(0);
 
-        line += "  ";
-        for (int i = 0; i < SIZE; i++) {
-            line += "   " + (char) ('A' + i);
-        }
-        System.out.println(line);
-
-        line = "";
-        line += "   -";
-        for (int j = 0; j < SIZE; j++) {
-            line += "----";
-        }
-        System.out.println(line);
+        appendLetters();
+        appendSeparator();
 
         for (int i = 0; i < SIZE; i++) {
-            line = "";
-            line += String.format("%2d", SIZE - i) + " |";
+            appendNumber(SIZE - i);
+            board.append(" |");
             for (int j = 0; j < SIZE; j++) {
                 if (grid[j][SIZE - 1 - i] == 0) {
-                    line += "   ";
+                    board.append("   ");
                 } else if (grid[j][SIZE - 1 - i] == 1) {
-                    line += " X ";
+                    board.append(" X ");
                 } else {
-                    line += " O ";
+                    board.append(" O ");
                 }
-                line += "|";
+                board.append('|');
             }
-            line += " " + String.format("%2d", SIZE - i);
-            System.out.println(line);
+            board.append(' ');
+            appendNumber(SIZE - i);
+            board.append('\n');
 
-            line = "";
-            line += "   -";
-            for (int j = 0; j < SIZE; j++) {
-                line += "----";
-            }
-            System.out.println(line);
+            appendSeparator();
         }
 
-        line = "";
-        line += "  ";
+        appendLetters();
+        board.append('\n');
+
+        System.out.print(board);
+    }
+
+    private void appendLetters() {
+        board.append("  ");
         for (int i = 0; i < SIZE; i++) {
-            line += "   " + (char) ('A' + i);
+            board.append("   ").append((char) ('A' + i));
+        }
+        board.append('\n');
+    }
+
+    private void appendSeparator() {
+        board.append("   -");
+        for (int j = 0; j < SIZE; j++) {
+            board.append("----");
         }
-        System.out.println(line + "\n");
+        board.append('\n');
+    }
+
+    // Same as String.format("%2d", number)
+    private void appendNumber(int number) {
+        if (number < 10) board.append(' ');
+        board.append(number);
     }
 
     public int[][] getGrid() {
@@ -3,7 +3,7 @@ package gomoku.state;
 import gomoku.action.Action;
 import gomoku.action.GomokuAction;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -18,10 +18,13 @@ public class GomokuFunctions extends Gomoku {
     // ^ blog is for alpha beta search btw. (WARNING)
     // UCT application: http://alum.wpi.edu/~jbrodeur/cig08.pdf
     static private final long[][][] zobrist = new long[2][SIZE][SIZE];
+    // symmetricZobrist[symmetry][player][cell] is the key of cell once the board is transformed by symmetry
+    static private final long[][][] symmetricZobrist = new long[Symmetry.COUNT][2][CELL_COUNT];
+    private static final long ZOBRIST_SEED = 0x5EED; // fixed, so hashes stay the same between runs (Ex. in an opening book file)
 
     static {
         // Initialize Zobrist Keys
-        Random random = new Random();
+        Random random = new Random(ZOBRIST_SEED);
 
         for (int i = 0; i < 2; i++) {
             for (int j = 0; j < SIZE; j++) {
@@ -30,22 +33,53 @@ public class GomokuFunctions extends Gomoku {
                 }
             }
         }
+
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+            for (int player = 0; player < 2; player++) {
+                for (int cell = 0; cell < CELL_COUNT; cell++) {
+                    int transformed = Symmetry.transform(symmetry, cell);
+                    symmetricZobrist[symmetry][player][cell] = zobrist[player][transformed / SIZE][transformed % SIZE];
+                }
+            }
+        }
     }
 
-    private long hash = 0L; // mapped value of current game state to a long using zobrist hashing
-    private List<Integer> actionIndexHistory = new ArrayList<>(50); // helper for backMove();
+    // Ids of the action lists, used to record changes for backMove()
+    private static final int NEIGHBOURS = 0; // + player
+    private static final int NEIGHBOURS_UNION = 2;
+    private static final int NEIGHBOURS_INTERSECTION = 3;
+    private static final int THREATS = 4; // + player
+    private static final int DOUBLE_THREATS = 6; // + player
+
+    // mapped value of current game state to a long using zobrist hashing, once for every symmetry of the board
+    // hashes[0] is the hash of the board as it is
+    private final long[] hashes = new long[Symmetry.COUNT];
+    private int[] actionIndexHistory = new int[CELL_COUNT]; // helper for backMove();
+    private int actionIndexHistorySize = 0;
 
-    // Neighbours of occupied squares. Unordered. One list for each player
-    private List[] neighbours = new GomokuActionList[]{new GomokuActionList(CELL_COUNT), new GomokuActionList(CELL_COUNT)};
+    // Every change made to the action lists, so that backMove() can revert them in reverse order
+    // An entry is list id | (1 if added) << 3 | index in list << 4 | cell << 12
+    private int[] changes = new int[256];
+    private int changesSize = 0;
+    private int[] changesStart = new int[CELL_COUNT + 1]; // changesSize before the move at each ply
+
+    // Neighbours of occupied squares. Unordered. One set for each player
+    private final IntActionSet[] neighbours = new IntActionSet[]{new IntActionSet(), new IntActionSet()};
 
     // The union of neighbours[0] and neighbours[1]
-    private List neighboursUnion = new GomokuActionList(CELL_COUNT);
+    private final IntActionSet neighboursUnion = new IntActionSet();
+
+    private final IntActionSet neighboursIntersection = new IntActionSet();
+
+    private final IntActionSet[] threats = new IntActionSet[]{new IntActionSet(), new IntActionSet()};
 
-    private List neighboursIntersection = new GomokuActionList(CELL_COUNT);
+    private final IntActionSet[] doubleThreats = new IntActionSet[]{new IntActionSet(), new IntActionSet()};
 
-    private List[] threats = new GomokuActionList[]{new GomokuActionList(8), new GomokuActionList(8)};
+    // Stones on every line of the board, for threat detection
+    private final LinePatterns patterns = new LinePatterns();
 
-    private List[] doubleThreats = new GomokuActionList[]{new GomokuActionList(3), new GomokuActionList(3)};
+    // Weights of moves for playouts, null unless useMoveWeights() was called
+    private MoveWeights weights;
 
     // last move was a win?
     private boolean win = false;
@@ -56,17 +90,24 @@ public class GomokuFunctions extends Gomoku {
 
     private GomokuFunctions(GomokuFunctions from) {
         super(from);
-        hash = from.hash;
-        actionIndexHistory = new ArrayList<>(from.actionIndexHistory);
+        System.arraycopy(from.hashes, 0, hashes, 0, Symmetry.COUNT);
+        System.arraycopy(from.actionIndexHistory, 0, actionIndexHistory, 0, from.actionIndexHistorySize);
+        actionIndexHistorySize = from.actionIndexHistorySize;
         win = from.win;
+        patterns.copy(from.patterns);
+        if (from.weights != null) weights = new MoveWeights(from.weights);
 
-        neighboursUnion = new GomokuActionList(from.neighboursUnion);
-        neighboursIntersection = new GomokuActionList(from.neighboursIntersection);
+        changes = Arrays.copyOf(from.changes, from.changes.length);
+        changesSize = from.changesSize;
+        System.arraycopy(from.changesStart, 0, changesStart, 0, ply + 1);
+
+        neighboursUnion.copy(from.neighboursUnion);
+        neighboursIntersection.copy(from.neighboursIntersection);
 
         for (int i = 0; i < 2; i++) {
-            neighbours[i] = new GomokuActionList(from.neighbours[i]);
-            threats[i] = new GomokuActionList(from.threats[i]);
-            doubleThreats[i] = new GomokuActionList(from.doubleThreats[i]);
+            neighbours[i].copy(from.neighbours[i]);
+            threats[i].copy(from.threats[i]);
+            doubleThreats[i].copy(from.doubleThreats[i]);
         }
     }
 
@@ -77,12 +118,17 @@ public class GomokuFunctions extends Gomoku {
 
     @Override
     public void makeMove(int x, int y) {
+        changesStart[ply] = changesSize;
+        int cell = x * SIZE + y;
+        int player = playerToMove;
+
         // update hash
-        hash ^= zobrist[playerToMove][x][y];
+        updateHashes(player, cell);
 
+        win = patterns.isFive(player, cell);
         super.makeMove(x, y);
-
-        win = super.isWon();
+        patterns.place(player, cell);
+        if (weights != null) weights.place(grid, patterns, player, cell);
         if (win) return;
 
         // add neighbours
@@ -90,17 +136,17 @@ public class GomokuFunctions extends Gomoku {
         updateNeighbours(x, y);
         changePlayer();
 
-        detectThreats(x, y);
+        detectThreats(cell);
     }
 
     // Keep track of extra information for backMove()
     @Override
     public void removePossibleAction(int index) {
         super.removePossibleAction(index);
-        actionIndexHistory.add(index);
+        actionIndexHistory[actionIndexHistorySize++] = index;
     }
 
-    // Do not update possibleActions, hash, neighbours, or threats
+    // Do not update possibleActions, hash, neighbours, line patterns, or threats
     public void fastMakeMove(int x, int y) {
         grid[x][y] = playerToMove + 1;
         playerToMove = playerToMove == 0 ? 1 : 0;
@@ -117,22 +163,36 @@ public class GomokuFunctions extends Gomoku {
         fastMakeMove(action.getX(), action.getY());
     }
 
-    // Revert the last move, assume ply > 0
+    // Revert the last move made with makeMove(Action) or makeMove(int), assume ply > 0
     // Copy and paste code rather than call super.backMove() for small efficiency boost
-    // DOES NOT REVERT neighbours or threats
+    // Reverts neighbours and threats too, so the state is exactly as it was before the move
     public void backMove() {
         ply--;
         int x = xHistory.remove(ply);
         int y = yHistory.remove(ply);
 
         // re-add previous action to possible actions list and preserve previous order
-        possibleActions.add(actionIndexHistory.remove(actionIndexHistory.size() - 1), new GomokuAction(x, y));
+        possibleActions.add(actionIndexHistory[--actionIndexHistorySize], GomokuAction.of(x, y));
+
+        // revert neighbours and threats
+        while (changesSize > changesStart[ply]) {
+            int change = changes[--changesSize];
+            IntActionSet set = getSet(change & 7);
+
+            if ((change & 8) != 0) {
+                set.removeAt(set.size() - 1);
+            } else {
+                set.add((change >>> 4) & 255, change >>> 12);
+            }
+        }
 
         grid[x][y] = 0;
         playerToMove = playerToMove == 0 ? 1 : 0;
 
-        // revert hash
-        hash ^= zobrist[playerToMove][x][y];
+        // revert hash and line patterns
+        updateHashes(playerToMove, x * SIZE + y);
+        patterns.clear(playerToMove, x * SIZE + y);
+        if (weights != null) weights.clear(grid, patterns, playerToMove, x * SIZE + y);
 
         win = false;
     }
@@ -152,38 +212,89 @@ public class GomokuFunctions extends Gomoku {
 
     // Get the neighbours of the current player
     public List<Action> getPlayerNeighbours() {
-        return neighbours[playerToMove];
+        return neighbours[playerToMove].asList();
     }
 
     // Get the neighbours of the opposing player
     public List<Action> getEnemyNeighbours() {
-        return neighbours[playerToMove == 0 ? 1 : 0];
+        return neighbours[playerToMove == 0 ? 1 : 0].asList();
     }
 
     // Get the set of all neighbours of all stones on the board
     public List<Action> getNeighboursUnion() {
-        return neighboursUnion;
+        return neighboursUnion.asList();
     }
 
     // Get the intersection of two players' neighbours
     public List<Action> getNeighboursIntersection() {
-        return neighboursIntersection;
+        return neighboursIntersection.asList();
     }
 
     public List<Action> getPlayerThreats() {
-        return threats[playerToMove == 0 ? 1 : 0];
+        return threats[playerToMove == 0 ? 1 : 0].asList();
     }
 
     public List<Action> getEnemyThreats() {
-        return threats[playerToMove];
+        return threats[playerToMove].asList();
     }
 
     public List<Action> getPlayerDoubleThreats() {
-        return doubleThreats[playerToMove == 0 ? 1 : 0];
+        return doubleThreats[playerToMove == 0 ? 1 : 0].asList();
     }
 
     public List<Action> getEnemyDoubleThreats() {
-        return doubleThreats[playerToMove];
+        return doubleThreats[playerToMove].asList();
+    }
+
+    // Number of fours (cells that would then complete five) the player to move makes by playing on a cell
+    public int countPlayerFours(int cell) {
+        return patterns.countFours(playerToMove, cell);
+    }
+
+    // Number of fours the opposing player would make by playing on a cell
+    public int countEnemyFours(int cell) {
+        return patterns.countFours(playerToMove == 0 ? 1 : 0, cell);
+    }
+
+    // Number of lines in which the player to move makes a three (one move away from a double threat) by playing on a cell
+    public int countPlayerThrees(int cell) {
+        return patterns.countThrees(playerToMove, cell);
+    }
+
+    // Number of lines in which the opposing player would make a three by playing on a cell
+    public int countEnemyThrees(int cell) {
+        return patterns.countThrees(playerToMove == 0 ? 1 : 0, cell);
+    }
+
+    // Windows of IN_A_ROW cells in a line with stones of the player to move and none of the opponent
+    // counts[k] gets the number of windows with k stones. counts needs IN_A_ROW elements, counts[0] is left at 0
+    public void countPlayerWindows(int[] counts) {
+        patterns.countWindows(playerToMove, counts);
+    }
+
+    // Same for the opposing player
+    public void countEnemyWindows(int[] counts) {
+        patterns.countWindows(playerToMove == 0 ? 1 : 0, counts);
+    }
+
+    // Cells that share a line with a cell, close enough to make five with it. Only stones there change its threats
+    // Do not modify the returned array
+    public static int[] getLineNeighbours(int cell) {
+        return LinePatterns.affected(cell);
+    }
+
+    // Keep weights of the moves from their local shape, for sampleMove(). Off by default, as it slows down makeMove()
+    public void useMoveWeights() {
+        if (weights == null) weights = new MoveWeights(grid, patterns);
+    }
+
+    // Move of the player to move, picked with probability proportional to its weight (see MoveWeights)
+    // null if no move has a weight (Ex. empty board), or if useMoveWeights() was not called
+    public Action sampleMove(Random random) {
+        if (weights == null) return null;
+
+        int cell = weights.sample(playerToMove, random);
+        return cell == -1 ? null : GomokuAction.of(cell);
     }
 
     // Determines if the game is effectively over based on threats present on the board
@@ -196,11 +307,48 @@ public class GomokuFunctions extends Gomoku {
     // Check for a double threat based on the last move played
     // Generally a double threat means a player will win
     public boolean isDoubleThreat() {
-        return isDoubleThreat(xHistory.get(ply - 1), yHistory.get(ply - 1));
+        int cell = xHistory.get(ply - 1) * SIZE + yHistory.get(ply - 1);
+        return patterns.countFours(playerToMove == 0 ? 1 : 0, cell) > 1;
+    }
+
+    // Add or remove a stone of player from every hash
+    private void updateHashes(int player, int cell) {
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++) {
+            hashes[symmetry] ^= symmetricZobrist[symmetry][player][cell];
+        }
     }
 
     public long getHash() {
-        return hash;
+        return hashes[0];
+    }
+
+    // Hash of the position transformed by a symmetry (see Symmetry). getHash(0) == getHash()
+    public long getHash(int symmetry) {
+        return hashes[symmetry];
+    }
+
+    // Symmetry that gives the smallest hash. Positions that are symmetric to each other have the same canonical form
+    public int getCanonicalSymmetry() {
+        int best = 0;
+        for (int symmetry = 1; symmetry < Symmetry.COUNT; symmetry++) {
+            if (hashes[symmetry] < hashes[best]) best = symmetry;
+        }
+        return best;
+    }
+
+    // Same for every position symmetric to this one. Use it as the key of caches, so symmetric positions share entries
+    public long getCanonicalHash() {
+        return hashes[getCanonicalSymmetry()];
+    }
+
+    // Action in the canonical orientation of this position
+    public GomokuAction toCanonical(Action action) {
+        return Symmetry.transform(getCanonicalSymmetry(), (GomokuAction) action);
+    }
+
+    // Action in the canonical orientation back to the orientation of this position
+    public GomokuAction fromCanonical(Action action) {
+        return Symmetry.transform(Symmetry.inverse(getCanonicalSymmetry()), (GomokuAction) action);
     }
 
     @Override
@@ -213,6 +361,10 @@ public class GomokuFunctions extends Gomoku {
         return grid[x][y] == 0;
     }
 
+    private boolean isEmpty(int cell) {
+        return grid[cell / SIZE][cell % SIZE] == 0;
+    }
+
     // is a cell empty?
     public boolean isEmpty(Action a) {
         GomokuAction action = (GomokuAction) a;
@@ -229,7 +381,7 @@ public class GomokuFunctions extends Gomoku {
 
     // Prints the hash as a binary form
     public void printHashAsBinary() {
-        printLongAsBinary(hash);
+        printLongAsBinary(hashes[0]);
     }
 
     public static void printLongAsBinary(long num) {
@@ -240,408 +392,102 @@ public class GomokuFunctions extends Gomoku {
         System.out.println(Long.numberOfLeadingZeros(num) != 64 ? Long.toBinaryString(num) : "");
     }
 
-    private void updateNeighbours(int x, int y) {
-        for (int i = Math.max(0, x - 1); i <= Math.min(x + 1, Gomoku.SIZE - 1); i++) {
-            for (int j = Math.max(0, y - 1); j <= Math.min(y + 1, Gomoku.SIZE - 1); j++) {
-                if (isEmpty(i, j)) {
-                    GomokuAction action = new GomokuAction(i, j);
-                    if (!neighbours[playerToMove].contains(action)) {
-                        neighbours[playerToMove].add(action);
-
-                        if (neighbours[playerToMove == 0 ? 1 : 0].contains(action)) {
-                            neighboursIntersection.add(action);
-                        } else {
-                            neighboursUnion.add(action);
-                        }
-                    }
-                }
-            }
+    private IntActionSet getSet(int id) {
+        switch (id) {
+            case NEIGHBOURS:
+            case NEIGHBOURS + 1:
+                return neighbours[id - NEIGHBOURS];
+            case NEIGHBOURS_UNION:
+                return neighboursUnion;
+            case NEIGHBOURS_INTERSECTION:
+                return neighboursIntersection;
+            case THREATS:
+            case THREATS + 1:
+                return threats[id - THREATS];
+            default:
+                return doubleThreats[id - DOUBLE_THREATS];
         }
-
-        GomokuAction action = new GomokuAction(x, y);
-        if (neighbours[playerToMove].contains(action)) neighbours[playerToMove].remove(action);
-        if (neighbours[playerToMove == 0 ? 1 : 0].contains(action)) neighbours[playerToMove == 0 ? 1 : 0].remove(action);
-        if (neighboursUnion.contains(action)) neighboursUnion.remove(action);
-        if (neighboursIntersection.contains(action)) neighboursIntersection.remove(action);
     }
 
-    // Determines if the move played at (x, y) creates immediate threats or double threats
-    private void detectThreats(int lastx, int lasty) {
-
-        // Filter enemy threats and double threats based on move played
-        GomokuAction action = new GomokuAction(lastx, lasty);
-        if (threats[playerToMove == 0 ? 1 : 0].contains(action)) threats[playerToMove == 0 ? 1 : 0].remove(action);
-
-        // Remove enemy double threats no longer present
-        if (doubleThreats[playerToMove == 0 ? 1 : 0].contains(action)) doubleThreats[playerToMove == 0 ? 1 : 0].remove(action);
-
-        changePlayer();
-        List<Action> toRemove = new ArrayList<>(4);
-        for (Action doubleThreatAction : getEnemyDoubleThreats()) {
-            if (!isDoubleThreat(((GomokuAction) doubleThreatAction).getX(), ((GomokuAction) doubleThreatAction).getY())) {
-                toRemove.add(doubleThreatAction);
-            }
-        }
-        for (Action doubleThreatAction : toRemove) {
-            doubleThreats[playerToMove].remove(doubleThreatAction);
-        }
-        changePlayer();
-
-        // Detect threats
-        int player = playerToMove == 0 ? 2 : 1;
-
-        // count horizontal -
-        int count = 1; // count number in a row as of right now that is connected to the last move
-        boolean found = false; // is a potential threat seen?
-        int extra1 = 0;
-        int empty1 = 1;
-        for (int x = lastx - 1; x >= 0; x--) { // left
-            if (grid[x][lasty] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[x][lasty] == 0) { // empty cell
-                extra1++;
-                found = true;
-                empty1 = x;
-            } else {
-                if (isEmpty(x, lasty) && isDoubleThreat(x, lasty)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(x, lasty));
-                }
-                break;
-            }
-        }
-
-        boolean found2 = false;
-        int extra2 = 0;
-        int empty2 = 0;
-        for (int x = lastx + 1; x < SIZE; x++) { // right
-            if (grid[x][lasty] == player) {
-                if (!found2) count++;
-                else extra2++;
-            } else if (!found2 && grid[x][lasty] == 0) { // empty cell
-                extra2++;
-                found2 = true;
-                empty2 = x;
-            } else {
-                if (isEmpty(x, lasty) && isDoubleThreat(x, lasty)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(x, lasty));
-                }
-                break;
-            }
-        }
-
-        if (count + extra1 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(empty1, lasty));
-        } else if (found && isDoubleThreat(empty1, lasty)) {
-            doubleThreats[playerToMove].add(new GomokuAction(empty1, lasty));
-        }
-        if (count + extra2 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(empty2, lasty));
-        } else if (found2 && isDoubleThreat(empty2, lasty)) {
-            doubleThreats[playerToMove].add(new GomokuAction(empty2, lasty));
-        }
-
-        // count vertical |
-        count = 1;
-        found = false;
-        extra1 = 0;
-        for (int y = lasty - 1; y >= 0; y--) { // down
-            if (grid[lastx][y] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[lastx][y] == 0) { // empty cell
-                extra1++;
-                found = true;
-                empty1 = y;
-            } else {
-                if (isEmpty(lastx, y) && isDoubleThreat(lastx, y)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(lastx, y));
-                }
-                break;
-            }
-        }
-
-        found2 = false;
-        extra2 = 0;
-        for (int y = lasty + 1; y < SIZE; y++) { // up
-            if (grid[lastx][y] == player) {
-                if (!found2) count++;
-                else extra2++;
-            } else if (!found2 && grid[lastx][y] == 0) { // empty cell
-                extra2++;
-                found2 = true;
-                empty2 = y;
-            } else {
-                if (isEmpty(lastx, y) && isDoubleThreat(lastx, y)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(lastx, y));
-                }
-                break;
-            }
-        }
-
-        if (count + extra1 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(lastx, empty1));
-        } else if (found && isDoubleThreat(lastx, empty1)) {
-            doubleThreats[playerToMove].add(new GomokuAction(lastx, empty1));
-        }
-        if (count + extra2 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(lastx, empty2));
-        } else if (found2 && isDoubleThreat(lastx, empty2)) {
-            doubleThreats[playerToMove].add(new GomokuAction(lastx, empty2));
+    // Add a cell to a set and record the change for backMove()
+    private void add(int id, int cell) {
+        if (getSet(id).add(cell)) {
+            record(id | 8 | cell << 12);
         }
+    }
 
-        // count diagonal /
-        count = 1;
-        found = false;
-        extra1 = 0;
-        int bound = Math.min(lastx, lasty) + 1;
-        for (int i = 1; i < bound; i++) { // bottom left
-            if (grid[lastx - i][lasty - i] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[lastx - i][lasty - i] == 0) { // empty cell
-                extra1++;
-                found = true;
-                empty1 = i;
-            } else {
-                if (isEmpty(lastx - i, lasty - i) && isDoubleThreat(lastx - i, lasty - i)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(lastx - i, lasty - i));
-                }
-                break;
-            }
+    // Remove a cell from a set if present and record the change for backMove()
+    private void remove(int id, int cell) {
+        int index = getSet(id).remove(cell);
+        if (index != -1) {
+            record(id | index << 4 | cell << 12);
         }
+    }
 
-        found2 = false;
-        extra2 = 0;
-        bound = Math.min(SIZE - lastx, SIZE - lasty);
-        for (int i = 1; i < bound; i++) { // top right
-            if (grid[lastx + i][lasty + i] == player) {
-                if (!found2) count++;
-                else extra2++;
-            } else if (!found2 && grid[lastx + i][lasty + i] == 0) { // empty cell
-                extra2++;
-                found2 = true;
-                empty2 = i;
-            } else {
-                if (isEmpty(lastx + i, lasty + i) && isDoubleThreat(lastx + i, lasty + i)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(lastx + i, lasty + i));
-                }
-                break;
-            }
+    // Add or remove a cell so that it is in a set exactly when it should be
+    private void update(int id, int cell, boolean present) {
+        if (present) {
+            add(id, cell);
+        } else {
+            remove(id, cell);
         }
+    }
 
-        if (count + extra1 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(lastx - empty1, lasty - empty1));
-        } else if (found && isDoubleThreat(lastx - empty1, lasty - empty1)) {
-            doubleThreats[playerToMove].add(new GomokuAction(lastx - empty1, lasty - empty1));
-        }
-        if (count + extra2 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(lastx + empty2, lasty + empty2));
-        } else if (found2 && isDoubleThreat(lastx + empty2, lasty + empty2)) {
-            doubleThreats[playerToMove].add(new GomokuAction(lastx + empty2, lasty + empty2));
-        }
+    private void record(int change) {
+        if (changesSize == changes.length) changes = Arrays.copyOf(changes, changes.length * 2);
+        changes[changesSize++] = change;
+    }
 
-        // count diagonal \
-        count = 1;
-        found = false;
-        extra1 = 0;
-        bound = Math.min(lastx + 1, SIZE - lasty);
-        for (int i = 1; i < bound; i++) { // top left
-            if (grid[lastx - i][lasty + i] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[lastx - i][lasty + i] == 0) { // empty cell
-                extra1++;
-                found = true;
-                empty1 = i;
-            } else {
-                if (isEmpty(lastx - i, lasty + i) && isDoubleThreat(lastx - i, lasty + i)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(lastx - i, lasty + i));
-                }
-                break;
-            }
-        }
+    private void updateNeighbours(int x, int y) {
+        for (int i = Math.max(0, x - 1); i <= Math.min(x + 1, Gomoku.SIZE - 1); i++) {
+            for (int j = Math.max(0, y - 1); j <= Math.min(y + 1, Gomoku.SIZE - 1); j++) {
+                if (isEmpty(i, j)) {
+                    int cell = i * SIZE + j;
+                    if (!neighbours[playerToMove].contains(cell)) {
+                        add(NEIGHBOURS + playerToMove, cell);
 
-        found2 = false;
-        extra2 = 0;
-        bound = Math.min(SIZE - lastx, lasty + 1);
-        for (int i = 1; i < bound; i++) { // bottom right
-            if (grid[lastx + i][lasty - i] == player) {
-                if (!found2) count++;
-                else extra2++;
-            } else if (!found2 && grid[lastx + i][lasty - i] == 0) { // empty cell
-                extra2++;
-                found2 = true;
-                empty2 = i;
-            } else {
-                if (isEmpty(lastx + i, lasty - i) && isDoubleThreat(lastx + i, lasty - i)) {
-                    doubleThreats[playerToMove].add(new GomokuAction(lastx + i, lasty - i));
+                        if (neighbours[playerToMove == 0 ? 1 : 0].contains(cell)) {
+                            add(NEIGHBOURS_INTERSECTION, cell);
+                        } else {
+                            add(NEIGHBOURS_UNION, cell);
+                        }
+                    }
                 }
-                break;
             }
         }
 
-        if (count + extra1 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(lastx - empty1, lasty + empty1));
-        } else if (found && isDoubleThreat(lastx - empty1, lasty + empty1)) {
-            doubleThreats[playerToMove].add(new GomokuAction(lastx - empty1, lasty + empty1));
-        }
-        if (count + extra2 >= IN_A_ROW) {
-            threats[playerToMove].add(new GomokuAction(lastx + empty2, lasty - empty2));
-        } else if (found2 && isDoubleThreat(lastx + empty2, lasty - empty2)) {
-            doubleThreats[playerToMove].add(new GomokuAction(lastx + empty2, lasty - empty2));
-        }
+        int cell = x * SIZE + y;
+        remove(NEIGHBOURS + playerToMove, cell);
+        remove(NEIGHBOURS + (playerToMove == 0 ? 1 : 0), cell);
+        remove(NEIGHBOURS_UNION, cell);
+        remove(NEIGHBOURS_INTERSECTION, cell);
     }
 
-    private boolean isDoubleThreat(int lastx, int lasty) {
-        // there must be at least one move played on the board for this method to work
-        int player = playerToMove == 0 ? 2 : 1;
-
-        // check if threats exist coming from the last move played
-        int threatCount = 0; // count the number of threats so far
-
-        // count horizontal -
-        int count = 1; // count number in a row as of right now that is connected to the last move
-        boolean found = false; // is a potential threat seen?
-        int extra1 = 0;
-        for (int x = lastx - 1; x >= 0; x--) { // left
-            if (grid[x][lasty] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[x][lasty] == 0) { // empty cell
-                extra1++;
-                found = true;
-            } else {
-                break;
-            }
-        }
+    // Refresh the threats and double threats of both players around the stone just placed on cell
+    // Only cells on the 4 lines through it, within reach of a five, can have changed
+    private void detectThreats(int cell) {
 
-        found = false;
-        int extra2 = 0;
-        for (int x = lastx + 1; x < SIZE; x++) { // right
-            if (grid[x][lasty] == player) {
-                if (!found) count++;
-                else extra2++;
-            } else if (!found && grid[x][lasty] == 0) { // empty cell
-                extra2++;
-                found = true;
-            } else {
-                break;
-            }
-        }
-
-        if (count + extra1 >= IN_A_ROW) threatCount++;
-        if (count + extra2 >= IN_A_ROW) threatCount++;
-
-        if (threatCount > 1) return true;
-
-        // count vertical |
-        count = 1;
-        found = false;
-        extra1 = 0;
-        for (int y = lasty - 1; y >= 0; y--) { // down
-            if (grid[lastx][y] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[lastx][y] == 0) { // empty cell
-                extra1++;
-                found = true;
-            } else {
-                break;
-            }
-        }
-
-        found = false;
-        extra2 = 0;
-        for (int y = lasty + 1; y < SIZE; y++) { // up
-            if (grid[lastx][y] == player) {
-                if (!found) count++;
-                else extra2++;
-            } else if (!found && grid[lastx][y] == 0) { // empty cell
-                extra2++;
-                found = true;
-            } else {
-                break;
-            }
-        }
-
-        if (count + extra1 >= IN_A_ROW) threatCount++;
-        if (count + extra2 >= IN_A_ROW) threatCount++;
-
-        if (threatCount > 1) return true;
-
-        // count diagonal /
-        count = 1;
-        found = false;
-        extra1 = 0;
-        int bound = Math.min(lastx, lasty) + 1;
-        for (int i = 1; i < bound; i++) { // bottom left
-            if (grid[lastx - i][lasty - i] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[lastx - i][lasty - i] == 0) { // empty cell
-                extra1++;
-                found = true;
-            } else {
-                break;
-            }
+        // The cell is taken, so it is no longer a threat or double threat for anyone
+        for (int i = 0; i < 2; i++) {
+            remove(THREATS + i, cell);
+            remove(DOUBLE_THREATS + i, cell);
         }
 
-        found = false;
-        extra2 = 0;
-        bound = Math.min(SIZE - lastx, SIZE - lasty);
-        for (int i = 1; i < bound; i++) { // top right
-            if (grid[lastx + i][lasty + i] == player) {
-                if (!found) count++;
-                else extra2++;
-            } else if (!found && grid[lastx + i][lasty + i] == 0) { // empty cell
-                extra2++;
-                found = true;
-            } else {
-                break;
-            }
+        int[] affected = LinePatterns.affected(cell);
+        for (int i = 0; i < affected.length; i++) {
+            if (isEmpty(affected[i])) updateThreats(affected[i]);
         }
+    }
 
-        if (count + extra1 >= IN_A_ROW) threatCount++;
-        if (count + extra2 >= IN_A_ROW) threatCount++;
-
-        if (threatCount > 1) return true;
-
-        // count diagonal \
-        count = 1;
-        found = false;
-        extra1 = 0;
-        bound = Math.min(lastx + 1, SIZE - lasty);
-        for (int i = 1; i < bound; i++) { // top left
-            if (grid[lastx - i][lasty + i] == player) {
-                if (!found) count++;
-                else extra1++;
-            } else if (!found && grid[lastx - i][lasty + i] == 0) { // empty cell
-                extra1++;
-                found = true;
-            } else {
-                break;
-            }
-        }
+    // Add or remove an empty cell from the threats and double threats of both players, from its line patterns
+    // A threat makes five, a double threat makes at least two fours (so it wins next move unless it is a threat too)
+    private void updateThreats(int cell) {
+        for (int player = 0; player < 2; player++) {
+            int id = player == 0 ? 1 : 0; // the lists of a player are kept at the index of the opponent
 
-        found = false;
-        extra2 = 0;
-        bound = Math.min(SIZE - lastx, lasty + 1);
-        for (int i = 1; i < bound; i++) { // bottom right
-            if (grid[lastx + i][lasty - i] == player) {
-                if (!found) count++;
-                else extra2++;
-            } else if (!found && grid[lastx + i][lasty - i] == 0) { // empty cell
-                extra2++;
-                found = true;
-            } else {
-                break;
-            }
+            boolean threat = patterns.isFive(player, cell);
+            update(THREATS + id, cell, threat);
+            update(DOUBLE_THREATS + id, cell, !threat && patterns.countFours(player, cell) > 1);
         }
-
-        if (count + extra1 >= IN_A_ROW) threatCount++;
-        if (count + extra2 >= IN_A_ROW) threatCount++;
-
-        return threatCount > 1;
     }
 }
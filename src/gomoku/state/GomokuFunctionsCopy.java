@@ -120,7 +120,7 @@ public class GomokuFunctionsCopy extends Gomoku {
         int y = yHistory.remove(ply);
 
         // re-add previous action to possible actions list and preserve previous order
-        possibleActions.add(actionIndexHistory.remove(actionIndexHistory.size() - 1), new GomokuAction(x, y));
+        possibleActions.add(actionIndexHistory.remove(actionIndexHistory.size() - 1), GomokuAction.of(x, y));
 
         grid[x][y] = 0;
         playerToMove = playerToMove == 0 ? 1 : 0;
@@ -344,13 +344,13 @@ public class GomokuFunctionsCopy extends Gomoku {
         for (int i = Math.max(0, x - 1); i <= Math.min(x + 1, Gomoku.SIZE - 1); i++) {
             for (int j = Math.max(0, y - 1); j <= Math.min(y + 1, Gomoku.SIZE - 1); j++) {
                 if (isEmpty(i, j)) {
-                    GomokuAction action = new GomokuAction(i, j);
+                    GomokuAction action = GomokuAction.of(i, j);
                     if (!neighbours[playerToMove].contains(action)) neighbours[playerToMove].add(action);
                 }
             }
         }
 
-        GomokuAction action = new GomokuAction(x, y);
+        GomokuAction action = GomokuAction.of(x, y);
         if (neighbours[playerToMove].contains(action)) neighbours[playerToMove].remove(action);
         if (neighbours[playerToMove == 0 ? 1 : 0].contains(action)) neighbours[playerToMove == 0 ? 1 : 0].remove(action);
     }
@@ -379,26 +379,26 @@ public class GomokuFunctionsCopy extends Gomoku {
         // group of 4 or connects to another group to create 5+
         if (inGrid(x, y - l - 1) && isEmpty(x, y - l - 1)) {
             if (newSize == IN_A_ROW - 1) {
-                newThreats.add(new GomokuAction(x, y - l - 1));
+                newThreats.add(GomokuAction.of(x, y - l - 1));
             } else if (inGrid(x, y - l - 2) && occupiedByCurrentPlayer(x, y - l - 2)) {
                 if (newSize + verticalSize[x][y - l - 2] >= IN_A_ROW - 1) {
-                    newThreats.add(new GomokuAction(x, y - l - 1));
+                    newThreats.add(GomokuAction.of(x, y - l - 1));
                 }
             }
         }
         if (inGrid(x, y + u + 1) && isEmpty(x, y + u + 1)) {
             if (newSize == IN_A_ROW - 1) {
-                newThreats.add(new GomokuAction(x, y + u + 1));
+                newThreats.add(GomokuAction.of(x, y + u + 1));
             } else if (inGrid(x, y + u + 2) && occupiedByCurrentPlayer(x, y + u + 2)) {
                 if (newSize + verticalSize[x][y + u + 2] >= IN_A_ROW - 1) {
-                    newThreats.add(new GomokuAction(x, y + u + 1));
+                    newThreats.add(GomokuAction.of(x, y + u + 1));
                 }
             }
         }
 
         if (newThreats.size() >= 2) { // Double threat exists
             printGame();
-            new GomokuAction(x, y).print();
+            GomokuAction.of(x, y).print();
             System.out.println("A double threat has been produced.");
         }
 
@@ -425,13 +425,13 @@ public class GomokuFunctionsCopy extends Gomoku {
         if (createsThreat[playerToMove][x][y]) {
             printGame();
             System.out.print("DOUBLE THREAT BY PLAYING ");
-            new GomokuAction(x, y).print();
+            GomokuAction.of(x, y).print();
         } else {
 
             createsThreat[playerToMove][x][y] = true;
             printGame();
             System.out.print("SINGLE THREAT BY PLAYING ");
-            new GomokuAction(x, y).print();
+            GomokuAction.of(x, y).print();
         }
     }
 }
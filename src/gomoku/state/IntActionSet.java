@@ -0,0 +1,153 @@
+package gomoku.state;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/*
+    Set of unique Gomoku Actions stored as cells (x * SIZE + y) in a single short[]
+
+    data[0, size) holds the cells in list order
+    data[CELL_COUNT + cell] holds the index of cell in the list, or -1 if cell is not in the set
+
+    Pros:
+    - O(1) add, remove and contains with no boxing
+    - Copying is one System.arraycopy
+    - Same ordering rules as GomokuActionList, so it can replace it without changing games
+
+    Cons:
+    - Order not preserved on remove (whatever order means in terms of Gomoku Actions)
+ */
+
+public class IntActionSet {
+
+    private static final int CELL_COUNT = Gomoku.CELL_COUNT;
+
+    private static final short[] empty = new short[2 * CELL_COUNT];
+
+    static {
+        for (int i = CELL_COUNT; i < 2 * CELL_COUNT; i++) {
+            empty[i] = -1;
+        }
+    }
+
+    private final short[] data = new short[2 * CELL_COUNT];
+    private int size = 0;
+
+    private List<Action> list; // view as a List<Action>, created on first use
+
+    public IntActionSet() {
+        System.arraycopy(empty, 0, data, 0, data.length);
+    }
+
+    public IntActionSet(IntActionSet from) {
+        copy(from);
+    }
+
+    // Make this set equal to another set
+    public void copy(IntActionSet from) {
+        System.arraycopy(from.data, 0, data, 0, data.length);
+        size = from.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Cell at an index of the list
+    public int get(int index) {
+        return data[index];
+    }
+
+    public boolean contains(int cell) {
+        return data[CELL_COUNT + cell] != -1;
+    }
+
+    // Index of a cell in the list, -1 if absent
+    public int indexOf(int cell) {
+        return data[CELL_COUNT + cell];
+    }
+
+    // Add a cell to the end of the list. Returns false if it is already present
+    public boolean add(int cell) {
+        if (data[CELL_COUNT + cell] != -1) return false; // Do not allow duplicates
+
+        data[CELL_COUNT + cell] = (short) size;
+        data[size++] = (short) cell;
+        return true;
+    }
+
+    // Add a cell at an index, moving the cell occupying that index to the end of the list
+    // Reverts remove(index)
+    public void add(int index, int cell) {
+        if (index < size) {
+            int toMove = data[index];
+            data[CELL_COUNT + toMove] = (short) size;
+            data[size++] = (short) toMove;
+
+            data[index] = (short) cell;
+            data[CELL_COUNT + cell] = (short) index;
+        } else {
+            add(cell);
+        }
+    }
+
+    // Remove the cell at an index, moving the last cell into its place. Returns the removed cell
+    public int removeAt(int index) {
+        int cell = data[index];
+        int last = data[--size];
+
+        data[index] = (short) last;
+        data[CELL_COUNT + last] = (short) index;
+        data[CELL_COUNT + cell] = -1;
+        return cell;
+    }
+
+    // Remove a cell. Returns the index it was removed from, -1 if it was absent
+    public int remove(int cell) {
+        int index = data[CELL_COUNT + cell];
+        if (index != -1) removeAt(index);
+        return index;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            data[CELL_COUNT + data[i]] = -1;
+        }
+        size = 0;
+    }
+
+    // Read only view of this set as actions. Changes to the set show up in the view
+    public List<Action> asList() {
+        if (list == null) {
+            list = new AbstractList<Action>() {
+                @Override
+                public Action get(int index) {
+                    return GomokuAction.of(data[index]);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public int indexOf(Object o) {
+                    return data[CELL_COUNT + ((GomokuAction) o).getIndex()];
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return indexOf(o) != -1;
+                }
+            };
+        }
+        return list;
+    }
+}
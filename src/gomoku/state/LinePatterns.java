@@ -0,0 +1,301 @@
+package gomoku.state;
+
+import java.util.Arrays;
+
+/*
+    The stones of each player on every line of the board (rows, columns and both diagonals), kept as bitmasks and
+    updated with place() and clear(), so that threats come from table lookups instead of walking the grid
+
+    Only the 72 lines that are at least IN_A_ROW long are kept, the shorter diagonals in the corners can never hold a five.
+    Bit (WINDOW + position) of a mask is a cell of the line, so that the WINDOW cells on each side of any cell
+    can be shifted out of it, with the cells off the board reading as neither empty nor owned.
+
+    For every cell, direction and player, values holds the lookup of the cell's window: whether placing a stone of
+    the player on the cell makes five, how many fours it makes (cells that would then complete five),
+    and whether it makes a three (one more stone in the window then makes two fours).
+    Only the cells within WINDOW of a changed cell on its 4 lines can change, so place() and clear() refresh those.
+ */
+
+final class LinePatterns {
+
+    static final int DIRECTIONS = 4; // horizontal -, vertical |, diagonal /, diagonal \
+
+    private static final int SIZE = Gomoku.SIZE;
+    private static final int CELL_COUNT = Gomoku.CELL_COUNT;
+    private static final int IN_A_ROW = Gomoku.IN_A_ROW;
+    private static final int WINDOW = IN_A_ROW - 1; // cells on each side of a cell that can make a five with it
+    private static final int WINDOW_BITS = 2 * WINDOW; // bits of a window, without its middle cell
+    private static final int FIVE_CELLS = (1 << IN_A_ROW) - 1; // bits of IN_A_ROW cells in a row
+
+    // Value of a cell in one direction
+    private static final int FOURS = 3; // mask of the number of fours
+    private static final int FIVE = 4;
+    private static final int THREE = 8;
+
+    // Line geometry
+    private static final int LINE_COUNT;
+    private static final int[] lineOf = new int[DIRECTIONS * CELL_COUNT]; // [direction * CELL_COUNT + cell], -1 if the line is too short
+    private static final int[] positionOf = new int[DIRECTIONS * CELL_COUNT];
+    private static final int[][] cells; // [line][position]
+    private static final int[] lineMask; // bits of the cells of a line
+
+    private static final int[][] affected = new int[CELL_COUNT][]; // cells that share a line with a cell, within WINDOW of it
+
+    // PATTERNS[own | empty << WINDOW_BITS] is the value of a cell whose window holds own stones and empty cells
+    // Bits 0 to 3 are the WINDOW cells before the cell, nearest last, bits 4 to 7 the WINDOW cells after it, nearest first
+    private static final byte[] PATTERNS = new byte[1 << 2 * WINDOW_BITS];
+
+    static {
+        int[][] lineCells = new int[4 * 2 * SIZE][];
+        int lineCount = 0;
+
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            int dx = direction == 1 ? 0 : 1;
+            int dy = direction == 0 ? 0 : direction == 3 ? -1 : 1;
+
+            for (int cell = 0; cell < CELL_COUNT; cell++) {
+                int x = cell / SIZE;
+                int y = cell % SIZE;
+
+                // only start a line from its first cell
+                if (inGrid(x - dx, y - dy)) continue;
+
+                int length = 0;
+                while (inGrid(x + length * dx, y + length * dy)) length++;
+
+                int line = length >= IN_A_ROW ? lineCount++ : -1;
+                if (line != -1) lineCells[line] = new int[length];
+
+                for (int i = 0; i < length; i++) {
+                    int lineCell = (x + i * dx) * SIZE + y + i * dy;
+                    lineOf[direction * CELL_COUNT + lineCell] = line;
+                    positionOf[direction * CELL_COUNT + lineCell] = i;
+                    if (line != -1) lineCells[line][i] = lineCell;
+                }
+            }
+        }
+
+        LINE_COUNT = lineCount;
+        cells = new int[lineCount][];
+        lineMask = new int[lineCount];
+        for (int line = 0; line < lineCount; line++) {
+            cells[line] = lineCells[line];
+            lineMask[line] = ((1 << cells[line].length) - 1) << WINDOW;
+        }
+
+        int[] buffer = new int[DIRECTIONS * 2 * WINDOW];
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            int size = 0;
+            for (int direction = 0; direction < DIRECTIONS; direction++) {
+                int line = lineOf[direction * CELL_COUNT + cell];
+                if (line == -1) continue;
+
+                int position = positionOf[direction * CELL_COUNT + cell];
+                int from = Math.max(0, position - WINDOW);
+                int to = Math.min(cells[line].length - 1, position + WINDOW);
+                for (int i = from; i <= to; i++) {
+                    if (i != position) buffer[size++] = cells[line][i];
+                }
+            }
+            affected[cell] = Arrays.copyOf(buffer, size);
+        }
+
+        for (int key = 0; key < PATTERNS.length; key++) {
+            int own = key & ((1 << WINDOW_BITS) - 1);
+            int empty = key >>> WINDOW_BITS;
+            if ((own & empty) == 0) PATTERNS[key] = (byte) evaluate(own, empty);
+        }
+    }
+
+    private static boolean inGrid(int x, int y) {
+        return x >= 0 && x < SIZE && y >= 0 && y < SIZE;
+    }
+
+    // Bit of the window cell at distance (1 to WINDOW) before or after the middle cell
+    private static int before(int distance) {
+        return 1 << WINDOW - distance;
+    }
+
+    private static int after(int distance) {
+        return 1 << WINDOW - 1 + distance;
+    }
+
+    // Value of the middle cell of a window once a stone is placed on it
+    // Same counting as the old ray walk: stones connected to the cell, then on each side the first empty cell
+    // and the stones connected beyond it. That empty cell is a four if filling it makes IN_A_ROW
+    private static int evaluate(int own, int empty) {
+        int beforeRun = 0;
+        while (beforeRun < WINDOW && (own & before(beforeRun + 1)) != 0) beforeRun++;
+        int afterRun = 0;
+        while (afterRun < WINDOW && (own & after(afterRun + 1)) != 0) afterRun++;
+
+        int count = 1 + beforeRun + afterRun;
+        int value = count >= IN_A_ROW ? FIVE : 0;
+
+        int gap = beforeRun + 1;
+        if (gap <= WINDOW && (empty & before(gap)) != 0) {
+            int extra = 1;
+            while (gap + extra <= WINDOW && (own & before(gap + extra)) != 0) extra++;
+            if (count + extra >= IN_A_ROW) value++;
+        }
+
+        gap = afterRun + 1;
+        if (gap <= WINDOW && (empty & after(gap)) != 0) {
+            int extra = 1;
+            while (gap + extra <= WINDOW && (own & after(gap + extra)) != 0) extra++;
+            if (count + extra >= IN_A_ROW) value++;
+        }
+
+        if (value == 0 && isThree(own, empty)) value = THREE;
+        return value;
+    }
+
+    // Does a stone on the middle cell make a three? Only the window is looked at, so a few threes near its ends are missed
+    private static boolean isThree(int own, int empty) {
+        // back to the cells in line order, with the stone in the middle
+        int line = (own & ((1 << WINDOW) - 1)) | 1 << WINDOW | (own >>> WINDOW) << (WINDOW + 1);
+        int lineEmpty = (empty & ((1 << WINDOW) - 1)) | (empty >>> WINDOW) << (WINDOW + 1);
+
+        for (int i = 0; i <= 2 * WINDOW; i++) {
+            if ((lineEmpty & 1 << i) != 0 && completions(line | 1 << i, lineEmpty & ~(1 << i)) > 1) return true;
+        }
+        return false;
+    }
+
+    // Number of empty cells that make IN_A_ROW in a row when filled, in a line of 2 * WINDOW + 1 cells
+    private static int completions(int line, int lineEmpty) {
+        int count = 0;
+        for (int i = 0; i <= 2 * WINDOW; i++) {
+            if ((lineEmpty & 1 << i) == 0) continue;
+
+            int run = 1;
+            for (int j = i - 1; j >= 0 && (line & 1 << j) != 0; j--) run++;
+            for (int j = i + 1; j <= 2 * WINDOW && (line & 1 << j) != 0; j++) run++;
+            if (run >= IN_A_ROW) count++;
+        }
+        return count;
+    }
+
+    private final int[][] stones = new int[2][LINE_COUNT]; // [player][line]
+    private final byte[][] values = new byte[2][DIRECTIONS * CELL_COUNT]; // [player][direction * CELL_COUNT + cell]
+
+    LinePatterns() {
+    }
+
+    // Make these patterns equal to other patterns
+    void copy(LinePatterns from) {
+        for (int player = 0; player < 2; player++) {
+            System.arraycopy(from.stones[player], 0, stones[player], 0, LINE_COUNT);
+            System.arraycopy(from.values[player], 0, values[player], 0, DIRECTIONS * CELL_COUNT);
+        }
+    }
+
+    // A stone of player was placed on cell
+    void place(int player, int cell) {
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            int line = lineOf[direction * CELL_COUNT + cell];
+            if (line == -1) continue;
+
+            stones[player][line] |= 1 << (WINDOW + positionOf[direction * CELL_COUNT + cell]);
+            refresh(direction, line, positionOf[direction * CELL_COUNT + cell]);
+        }
+    }
+
+    // The stone of player on cell was taken back
+    void clear(int player, int cell) {
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            int line = lineOf[direction * CELL_COUNT + cell];
+            if (line == -1) continue;
+
+            stones[player][line] &= ~(1 << (WINDOW + positionOf[direction * CELL_COUNT + cell]));
+            refresh(direction, line, positionOf[direction * CELL_COUNT + cell]);
+        }
+    }
+
+    // Look up the values of the cells of a line within WINDOW of a position
+    private void refresh(int direction, int line, int position) {
+        int[] lineCells = cells[line];
+        int from = Math.max(0, position - WINDOW);
+        int to = Math.min(lineCells.length - 1, position + WINDOW);
+
+        int empty = lineMask[line] & ~(stones[0][line] | stones[1][line]);
+        for (int player = 0; player < 2; player++) {
+            int own = stones[player][line];
+            byte[] playerValues = values[player];
+
+            for (int i = from; i <= to; i++) {
+                playerValues[direction * CELL_COUNT + lineCells[i]] = PATTERNS[window(own, i) | window(empty, i) << WINDOW_BITS];
+            }
+        }
+    }
+
+    // The WINDOW cells on each side of a position, without the position itself
+    private static int window(int mask, int position) {
+        int window = mask >>> position; // the position is now bit WINDOW
+        int before = window & ((1 << WINDOW) - 1);
+        int after = (window >>> (WINDOW + 1)) & ((1 << WINDOW) - 1);
+        return before | after << WINDOW;
+    }
+
+    // Would a stone of player on cell make five in a row?
+    boolean isFive(int player, int cell) {
+        byte[] playerValues = values[player];
+        return ((playerValues[cell] | playerValues[CELL_COUNT + cell]
+                | playerValues[2 * CELL_COUNT + cell] | playerValues[3 * CELL_COUNT + cell]) & FIVE) != 0;
+    }
+
+    // Number of cells that would complete five after a stone of player is placed on cell
+    int countFours(int player, int cell) {
+        byte[] playerValues = values[player];
+        return (playerValues[cell] & FOURS) + (playerValues[CELL_COUNT + cell] & FOURS)
+                + (playerValues[2 * CELL_COUNT + cell] & FOURS) + (playerValues[3 * CELL_COUNT + cell] & FOURS);
+    }
+
+    // Number of directions in which a stone of player on cell makes a three (and no four)
+    int countThrees(int player, int cell) {
+        byte[] playerValues = values[player];
+        return ((playerValues[cell] & THREE) + (playerValues[CELL_COUNT + cell] & THREE)
+                + (playerValues[2 * CELL_COUNT + cell] & THREE) + (playerValues[3 * CELL_COUNT + cell] & THREE)) >> 3;
+    }
+
+    // Sum of table[value] over the values of cell in every direction for player, with tables from valueTable()
+    int sumValues(int player, int cell, int[] table) {
+        byte[] playerValues = values[player];
+        return table[playerValues[cell]] + table[playerValues[CELL_COUNT + cell]]
+                + table[playerValues[2 * CELL_COUNT + cell]] + table[playerValues[3 * CELL_COUNT + cell]];
+    }
+
+    // Table for sumValues(): four for every four a stone makes in a direction, three if it makes a three
+    static int[] valueTable(int four, int three) {
+        int[] table = new int[16];
+        for (int value = 0; value < table.length; value++) {
+            table[value] = four * (value & FOURS) + ((value & THREE) != 0 ? three : 0);
+        }
+        return table;
+    }
+
+    // Count the windows of IN_A_ROW cells in a line that hold stones of player and none of the opponent
+    // counts[k] gets the number of windows with k stones, for k from 1 to IN_A_ROW - 1
+    void countWindows(int player, int[] counts) {
+        Arrays.fill(counts, 0);
+
+        int[] own = stones[player];
+        int[] other = stones[player == 0 ? 1 : 0];
+        for (int line = 0; line < LINE_COUNT; line++) {
+            if (own[line] == 0) continue;
+
+            int ownLine = own[line] >>> WINDOW;
+            int otherLine = other[line] >>> WINDOW;
+            for (int start = 0; start + IN_A_ROW <= cells[line].length; start++) {
+                if ((otherLine >>> start & FIVE_CELLS) != 0) continue;
+                counts[Integer.bitCount(ownLine >>> start & FIVE_CELLS)]++;
+            }
+        }
+        counts[0] = 0;
+    }
+
+    // Cells whose values can change when the stone on cell changes
+    static int[] affected(int cell) {
+        return affected[cell];
+    }
+}
@@ -0,0 +1,197 @@
+package gomoku.state;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+    Weights of the moves of each player for playouts, from the shape around each empty cell:
+    - its 3x3 neighbourhood, as a base 3 code (empty or off the board, own stone, opponent stone) looked up in NEIGHBOURHOOD.
+      The codes are kept up to date as stones come and go
+    - the line patterns through it: the fours and threes a stone there would make for either player
+
+    A cell with no stone around it weighs 0, so like getNeighboursUnion() playouts stay near the stones.
+    The weights of each player are kept in a Fenwick tree, so a move is sampled and a weight is changed in O(log CELL_COUNT)
+    https://en.wikipedia.org/wiki/Fenwick_tree
+    A move only changes the cells around it and on its lines, which place() and clear() refresh.
+ */
+
+final class MoveWeights {
+
+    private static final int SIZE = Gomoku.SIZE;
+    private static final int CELL_COUNT = Gomoku.CELL_COUNT;
+
+    // NEIGHBOURHOOD[code] is the weight of the 3x3 shape with that code, 3^8 shapes
+    private static final int[] NEIGHBOURHOOD = new int[6561];
+    private static final int OWN_STONE = 3; // weight of each own stone around the cell
+    private static final int OPPONENT_STONE = 2;
+    private static final int CONNECTION = 4; // for each pair of own stones on opposite sides of the cell
+
+    // Factor of the line patterns: 1 + the fours and threes a stone on the cell makes, times these
+    private static final int[] OWN_LINES = LinePatterns.valueTable(12, 6);
+    private static final int[] OPPONENT_LINES = LinePatterns.valueTable(6, 4); // blocking them
+
+    private static final int[] POWERS = {1, 3, 9, 27, 81, 243, 729, 2187};
+
+    // Cells around a cell, -1 off the board. Numbered so that i and 7 - i are on opposite sides,
+    // so a cell is neighbour 7 - i of its neighbour i
+    private static final int[][] neighbours = new int[CELL_COUNT][8];
+    private static final int[][] changed = new int[CELL_COUNT][]; // cells whose weights a stone on a cell can change
+
+    static {
+        for (int code = 0; code < NEIGHBOURHOOD.length; code++) {
+            int[] digits = new int[8];
+            int own = 0, opponent = 0;
+            for (int i = 0, rest = code; i < 8; i++, rest /= 3) {
+                digits[i] = rest % 3;
+                if (digits[i] == 1) own++;
+                if (digits[i] == 2) opponent++;
+            }
+
+            int connections = 0;
+            for (int i = 0; i < 4; i++) {
+                if (digits[i] == 1 && digits[7 - i] == 1) connections++;
+            }
+
+            NEIGHBOURHOOD[code] = own == 0 && opponent == 0 ? 0 : 1 + OWN_STONE * own + OPPONENT_STONE * opponent + CONNECTION * connections;
+        }
+
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            int x = cell / SIZE;
+            int y = cell % SIZE;
+            int i = 0;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    boolean inGrid = x + dx >= 0 && x + dx < SIZE && y + dy >= 0 && y + dy < SIZE;
+                    neighbours[cell][i++] = inGrid ? (x + dx) * SIZE + y + dy : -1;
+                }
+            }
+        }
+
+        // the cell, the cells on its lines and the cells around it
+        boolean[] seen = new boolean[CELL_COUNT];
+        int[] buffer = new int[CELL_COUNT];
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            Arrays.fill(seen, false);
+            int size = 0;
+            buffer[size++] = cell;
+            seen[cell] = true;
+            for (int other : LinePatterns.affected(cell)) {
+                if (!seen[other]) {
+                    seen[other] = true;
+                    buffer[size++] = other;
+                }
+            }
+            for (int other : neighbours[cell]) {
+                if (other != -1 && !seen[other]) {
+                    seen[other] = true;
+                    buffer[size++] = other;
+                }
+            }
+            changed[cell] = Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private final int[][] codes = new int[2][CELL_COUNT]; // [player][cell], 3x3 code seen by player
+    private final int[][] weights = new int[2][CELL_COUNT];
+    private final int[][] trees = new int[2][CELL_COUNT + 1]; // Fenwick trees of weights, 1 based
+    private final int[] totals = new int[2];
+
+    // Weights of every cell of a position
+    MoveWeights(int[][] grid, LinePatterns patterns) {
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            if (grid[cell / SIZE][cell % SIZE] != 0) addStone(grid[cell / SIZE][cell % SIZE] - 1, cell, 1);
+        }
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            refresh(grid, patterns, cell);
+        }
+    }
+
+    MoveWeights(MoveWeights from) {
+        for (int player = 0; player < 2; player++) {
+            System.arraycopy(from.codes[player], 0, codes[player], 0, CELL_COUNT);
+            System.arraycopy(from.weights[player], 0, weights[player], 0, CELL_COUNT);
+            System.arraycopy(from.trees[player], 0, trees[player], 0, CELL_COUNT + 1);
+        }
+        System.arraycopy(from.totals, 0, totals, 0, 2);
+    }
+
+    // A stone of player was placed on cell, after the line patterns were updated
+    void place(int[][] grid, LinePatterns patterns, int player, int cell) {
+        addStone(player, cell, 1);
+        refreshAround(grid, patterns, cell);
+    }
+
+    // The stone of player on cell was taken back, after the line patterns were updated
+    void clear(int[][] grid, LinePatterns patterns, int player, int cell) {
+        addStone(player, cell, -1);
+        refreshAround(grid, patterns, cell);
+    }
+
+    // Add (sign 1) or remove (sign -1) a stone from the codes of the cells around it
+    private void addStone(int player, int cell, int sign) {
+        int[] own = codes[player];
+        int[] opponent = codes[player == 0 ? 1 : 0];
+        int[] around = neighbours[cell];
+        for (int i = 0; i < 8; i++) {
+            int neighbour = around[i];
+            if (neighbour == -1) continue;
+
+            own[neighbour] += sign * POWERS[7 - i];
+            opponent[neighbour] += sign * 2 * POWERS[7 - i];
+        }
+    }
+
+    private void refreshAround(int[][] grid, LinePatterns patterns, int cell) {
+        int[] cells = changed[cell];
+        for (int i = 0; i < cells.length; i++) {
+            refresh(grid, patterns, cells[i]);
+        }
+    }
+
+    private void refresh(int[][] grid, LinePatterns patterns, int cell) {
+        boolean empty = grid[cell / SIZE][cell % SIZE] == 0;
+
+        for (int player = 0; player < 2; player++) {
+            int weight = 0;
+            if (empty) {
+                weight = NEIGHBOURHOOD[codes[player][cell]];
+                if (weight != 0) {
+                    weight *= 1 + patterns.sumValues(player, cell, OWN_LINES) + patterns.sumValues(player == 0 ? 1 : 0, cell, OPPONENT_LINES);
+                }
+            }
+
+            int delta = weight - weights[player][cell];
+            if (delta == 0) continue;
+
+            weights[player][cell] = weight;
+            totals[player] += delta;
+            int[] tree = trees[player];
+            for (int i = cell + 1; i <= CELL_COUNT; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+    }
+
+    int getTotal(int player) {
+        return totals[player];
+    }
+
+    // Cell picked with probability proportional to its weight for player, -1 if every weight is 0
+    int sample(int player, Random random) {
+        if (totals[player] == 0) return -1;
+
+        // Walk down the tree to the last position whose running sum does not pass a random target
+        int[] tree = trees[player];
+        int target = random.nextInt(totals[player]);
+        int position = 0;
+        for (int step = Integer.highestOneBit(CELL_COUNT); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= CELL_COUNT && tree[next] <= target) {
+                position = next;
+                target -= tree[next];
+            }
+        }
+        return position; // the tree is 1 based, so the cell after that position is cell position
+    }
+}
@@ -0,0 +1,42 @@
+package gomoku.state;
+
+import gomoku.action.GomokuAction;
+
+// The 8 symmetries of the square board (rotations and reflections), numbered 0 to 7
+// Symmetry s maps (x, y) by: swapping x and y if bit 2 is set, then mirroring x if bit 0 is set, then mirroring y if bit 1 is set
+// 0 is the identity
+
+public class Symmetry {
+
+    public static final int COUNT = 8;
+
+    private static final int SIZE = Gomoku.SIZE;
+
+    // Cell (x * SIZE + y) that cell is mapped to by symmetry
+    public static int transform(int symmetry, int cell) {
+        int x = cell / SIZE;
+        int y = cell % SIZE;
+
+        if ((symmetry & 4) != 0) {
+            int swap = x;
+            x = y;
+            y = swap;
+        }
+        if ((symmetry & 1) != 0) x = SIZE - 1 - x;
+        if ((symmetry & 2) != 0) y = SIZE - 1 - y;
+
+        return x * SIZE + y;
+    }
+
+    public static GomokuAction transform(int symmetry, GomokuAction action) {
+        return GomokuAction.of(transform(symmetry, action.getIndex()));
+    }
+
+    // Symmetry that undoes symmetry
+    public static int inverse(int symmetry) {
+        if ((symmetry & 4) == 0) return symmetry; // mirrors undo themselves
+
+        // Undoing a swap then mirrors means mirroring the other axis first, then swapping
+        return 4 | (symmetry & 1) << 1 | (symmetry & 2) >> 1;
+    }
+}
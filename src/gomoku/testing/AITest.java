@@ -1,33 +1,59 @@
 package gomoku.testing;
 
 import gomoku.ai.AI;
+import gomoku.ai.Log;
+import gomoku.ai.alphabeta.AlphaBeta;
+import gomoku.ai.arena.ArenaMCTS;
 import gomoku.ai.examplerandom.RandomAI;
 import gomoku.ai.examplesmartrandom.SmartRandomAI;
 import gomoku.action.Action;
 import gomoku.ai.examplesmartrandom.SmartRandomAICopy;
 import gomoku.ai.mcts.MCTS;
+import gomoku.ai.mcts.RootParallelMCTS;
+import gomoku.ai.treeparallel.TreeParallelMCTS;
 import gomoku.ai.uneven.Uneven;
+import gomoku.record.GameRecord;
+import gomoku.record.RecordWriter;
 import gomoku.state.Gomoku;
 import gomoku.state.State;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 public class AITest {
 
     static final AI AI_A = new MCTS();
+//    static final AI AI_A = new RootParallelMCTS(4);
+//    static final AI AI_A = new TreeParallelMCTS(4);
+//    static final AI AI_A = new ArenaMCTS();
 
     static final AI AI_B = new Uneven();
+//    static final AI AI_B = new AlphaBeta(); // deterministic baseline
 
     static int N = 100000;
     static boolean swapEveryGame = true;
-    static boolean printGame = true;
+    static boolean printGame = false;
+    static boolean printEngines = false; // print what the engines log every move (speed, scores)?
     static boolean printEnd = false; // print game when game over?
     static int printStatisticsFrequency = 1; // Print statistics every _ games
 
+    // Games are played in pairs from the same random opening, one game with each colour (needs swapEveryGame)
+    static int openingMoves = 2; // stones placed near the centre before the AIs take over, 0 for the empty board
+    static boolean pentanomial = true; // SPRT on the results of game pairs instead of single games?
+    static Random random = new Random();
+    static List<Action> opening;
+
     static Statistics statistics = new Statistics(N);
     static boolean switchSides = false;
 
+    static String recordFile = null; // append every game to this file (format in gomoku.record.GameRecord), null for none
+    private static RecordWriter recordWriter;
+
     // Parameters for SPRT test
     static final double elo0 = 0; // null hypothesis: the elo difference between AI_A and AI_B is 0. BTW do not change this parameter
     static double elo1 = 30; // alternative hypothesis: the elo difference between AI_A and AI_B is elo1 (elo0 < elo1)
@@ -39,11 +65,18 @@ public class AITest {
     // continue sprt after completion? DO NOT SET AS TRUE
     static boolean continueSPRT = false;
 
-    public static void main(String[] args) {
-        sprt(elo0, elo1, alpha, beta);
+    public static void main(String[] args) throws IOException {
+        if (printEngines) Log.setLogger(Log.CONSOLE);
+
+        if (recordFile != null) recordWriter = new RecordWriter(new File(recordFile));
+        try {
+            sprt();
+        } finally {
+            if (recordWriter != null) recordWriter.close();
+        }
     }
 
-    private static boolean stop() {
+    static boolean stop() {
         System.out.println("Continue playing games? (Y/N)");
         while (true) {
             try {
@@ -60,58 +93,63 @@ public class AITest {
     }
 
     // Self terminating test
-    private static void sprt(double elo0, double elo1, double alpha, double beta) {
+    private static void sprt() throws IOException {
         long timeStart, timeEnd;
         timeStart = System.nanoTime();
 
-        double a = Math.log(beta / (1 - alpha));
-        double b = Math.log((1 - beta) / alpha);
-
         while (true) {
             playGame();
 
-            if ((statistics.getCurrent() - 1) % printStatisticsFrequency == 0) statistics.printSPRT();
+            timeEnd = System.nanoTime();
+            String speed = "Games per second: " + statistics.getCurrent() / ((double) (timeEnd - timeStart) / 1000000000);
 
-            double llr = llr(statistics.getWins(), statistics.getDraws(), statistics.getLosses(), elo0, elo1);
+            if (sprtStep(statistics, pentanomial && swapEveryGame, printStatisticsFrequency, speed)) return;
+            timeStart += System.nanoTime() - timeEnd; // in between time
+        }
+    }
 
-            System.out.println("LLR: " + String.format("%.2f", llr)  + " (" + String.format("%.2f", a) + ", " + String.format("%.2f", b) + ")");
-            if (statistics.getWins() == 0) {
-                System.out.println("LLR inaccurate because wins == 0.");
-            } else if (statistics.getLosses() == 0) {
-                System.out.println("LLR inaccurate because losses == 0.");
-            }
+    // One step of the SPRT, after a game was added to statistics: print the statistics, the LLR and speed,
+    // and ask whether to stop once a hypothesis is accepted. Returns true to stop
+    // Shared with ParallelAITest, which uses the SPRT parameters above
+    static boolean sprtStep(Statistics statistics, boolean pentanomial, int printStatisticsFrequency, String speed) {
+        double a = Math.log(beta / (1 - alpha));
+        double b = Math.log((1 - beta) / alpha);
 
-            timeEnd = System.nanoTime();
-            System.out.println("Games per second: " + statistics.getCurrent() / ((double) (timeEnd - timeStart) / 1000000000) + "\n");
-
-            if (!continueSPRT) {
-                if (llr >= b) {
-                    // Accept H1
-                    System.out.println("Accept H1: there is a " + elo1 + " elo difference between AI_A and AI_B.");
-                    if (stop()) {
-                        return;
-                    } else {
-                        timeStart += System.nanoTime() - timeEnd; // in between time
-                        continueSPRT = true;
-                    }
-                } else if (llr <= a) {
-                    // Accept H0
-                    System.out.println("Accept H0: there is no elo difference between AI_A and AI_B.");
-                    if (stop()) {
-                        return;
-                    } else {
-                        timeStart += System.nanoTime() - timeEnd;
-                        continueSPRT = true;
-                    }
-                }
+        if ((statistics.getCurrent() - 1) % printStatisticsFrequency == 0) statistics.printSPRT();
+
+        double llr = pentanomial
+                ? statistics.pentanomialLlr(elo0, elo1)
+                : llr(statistics.getWins(), statistics.getDraws(), statistics.getLosses(), elo0, elo1);
+
+        System.out.println("LLR: " + String.format("%.2f", llr)  + " (" + String.format("%.2f", a) + ", " + String.format("%.2f", b) + ")");
+        if (statistics.getWins() == 0) {
+            System.out.println("LLR inaccurate because wins == 0.");
+        } else if (statistics.getLosses() == 0) {
+            System.out.println("LLR inaccurate because losses == 0.");
+        }
+
+        System.out.println(speed + "\n");
+
+        if (!continueSPRT) {
+            if (llr >= b) {
+                // Accept H1
+                System.out.println("Accept H1: there is a " + elo1 + " elo difference between AI_A and AI_B.");
+                if (stop()) return true;
+                continueSPRT = true;
+            } else if (llr <= a) {
+                // Accept H0
+                System.out.println("Accept H0: there is no elo difference between AI_A and AI_B.");
+                if (stop()) return true;
+                continueSPRT = true;
             }
         }
+        return false;
     }
 
     // return the log-likelihood ratio
     // source https://chessprogramming.wikispaces.com/Match%20Statistics
     // functions properly when w > 0 and l > 0
-    private static double llr(double w, double d, double l, double elo0, double elo1) {
+    static double llr(double w, double d, double l, double elo0, double elo1) {
         if (w == 0 || l == 0) return 0; // avoid division by 0
 
         double n = w + d + l;
@@ -134,15 +172,27 @@ public class AITest {
         return 1 /(1 + Math.pow(10, -elo/400));
     }
 
-    private static void playGame() {
+    private static void playGame() throws IOException {
+        // A new opening for the first game of every pair
+        if (opening == null || statistics.getCurrent() % 2 == 0) opening = Openings.random(random, openingMoves);
+
         State state = new Gomoku();
+        for (Action action : opening) {
+            state.makeMove(action);
+        }
+
         AI_A.reset();
         AI_B.reset();
+        AI_A.setPosition(opening);
+        AI_B.setPosition(opening);
 
-        int ply = 0;
+        int ply = opening.size();
 
         Action opponentAction = null;
 
+        List<Action> moves = new ArrayList<>(opening);
+        long timeA = 0, timeB = 0; // ns spent thinking
+
         // Play a game
         while (!state.isTerminal()) {
             ply++;
@@ -150,17 +200,22 @@ public class AITest {
             if (printGame) state.printGame();
 
             Action action;
+            long timeStart = System.nanoTime();
             if (state.isFirstPlayer()) {
                 if (!switchSides) {
                     action = AI_A.makeMove(state, opponentAction);
+                    timeA += System.nanoTime() - timeStart;
                 } else {
                     action = AI_B.makeMove(state, opponentAction);
+                    timeB += System.nanoTime() - timeStart;
                 }
             } else {
                 if (!switchSides) {
                     action = AI_B.makeMove(state, opponentAction);
+                    timeB += System.nanoTime() - timeStart;
                 } else {
                     action = AI_A.makeMove(state, opponentAction);
+                    timeA += System.nanoTime() - timeStart;
                 }
             }
 
@@ -170,6 +225,7 @@ public class AITest {
             }
 
             state.makeMove(action);
+            moves.add(action);
             opponentAction = action;
         }
 
@@ -197,6 +253,12 @@ public class AITest {
 
         statistics.addData(score, switchSides, ply);
 
+        if (recordWriter != null) {
+            recordWriter.write(score, !switchSides, opening.size(),
+                    GameRecord.engineId(AI_A.getClass().getSimpleName()), GameRecord.engineId(AI_B.getClass().getSimpleName()),
+                    (int) (timeA / 1000000), (int) (timeB / 1000000), moves);
+        }
+
         if (swapEveryGame) switchSides = !switchSides;
     }
 }
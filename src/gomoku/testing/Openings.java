@@ -0,0 +1,37 @@
+package gomoku.testing;
+
+import gomoku.action.Action;
+import gomoku.action.GomokuAction;
+import gomoku.state.Gomoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Random openings for test matches
+// Both games of a pair start from the same opening with colours swapped, so the opening's bias cancels out
+
+class Openings {
+
+    private static final int SIZE = Gomoku.SIZE;
+    private static final int RADIUS = 3; // stones are placed at most this far from the centre
+
+    // moves random stones near the centre, alternating colours. Keep moves small so that nobody wins in the opening
+    static List<Action> random(Random random, int moves) {
+        List<Action> opening = new ArrayList<>(moves);
+        boolean[] occupied = new boolean[Gomoku.CELL_COUNT];
+
+        while (opening.size() < moves) {
+            int x = SIZE / 2 - RADIUS + random.nextInt(2 * RADIUS + 1);
+            int y = SIZE / 2 - RADIUS + random.nextInt(2 * RADIUS + 1);
+
+            GomokuAction action = GomokuAction.of(x, y);
+            if (occupied[action.getIndex()]) continue;
+
+            occupied[action.getIndex()] = true;
+            opening.add(action);
+        }
+
+        return opening;
+    }
+}
@@ -0,0 +1,148 @@
+package gomoku.testing;
+
+import gomoku.action.Action;
+import gomoku.ai.AI;
+import gomoku.ai.mcts.MCTS;
+import gomoku.ai.uneven.Uneven;
+import gomoku.state.Gomoku;
+import gomoku.state.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+// AITest, but with many games played at once on a thread pool
+// Every thread plays with its own AI instances, made by the factories below
+//
+// Games finish out of order (short games first), so results are added to the statistics in the order the games
+// were started. Otherwise the SPRT would see a biased sample while long games are still running.
+
+public class ParallelAITest {
+
+    static final Supplier<AI> AI_A = MCTS::new;
+    static final Supplier<AI> AI_B = Uneven::new;
+
+    static int threads = Runtime.getRuntime().availableProcessors();
+    static int N = 100000;
+    static int printStatisticsFrequency = 1; // Print statistics every _ games
+
+    static Statistics statistics = new Statistics(N);
+
+    // Game pairs from the same random opening, as in AITest
+    static int openingMoves = 2;
+    static boolean pentanomial = true;
+    static Random random = new Random();
+    private static List<Action> opening; // opening of the last pair submitted
+
+    // AIs of the current thread: {AI_A, AI_B}
+    private static final ThreadLocal<AI[]> ais = ThreadLocal.withInitial(() -> new AI[]{AI_A.get(), AI_B.get()});
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        sprt();
+    }
+
+    // The SPRT parameters and the stop rule are those of AITest
+    private static void sprt() throws InterruptedException, ExecutionException {
+        long timeStart, timeEnd;
+        timeStart = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<GameResult> games = new ExecutorCompletionService<>(pool);
+
+        // Keep one game per thread running
+        int started = 0;
+        for (; started < threads && started < N; started++) {
+            submit(games, started);
+        }
+
+        Map<Integer, GameResult> finished = new HashMap<>(); // finished games waiting for earlier games
+        int next = 0; // next game to add to the statistics
+
+        while (next < N) {
+            GameResult result = games.take().get();
+            finished.put(result.game, result);
+            if (started < N) submit(games, started++);
+
+            while (finished.containsKey(next)) {
+                result = finished.remove(next++);
+                statistics.addData(result.score, result.switchSides, result.gameLength);
+
+                timeEnd = System.nanoTime();
+                String speed = "Games per second: " + statistics.getCurrent() / ((double) (timeEnd - timeStart) / 1000000000) + " (" + threads + " threads)";
+
+                // Games still running keep going while waiting for an answer, but only count if we continue
+                if (AITest.sprtStep(statistics, pentanomial, printStatisticsFrequency, speed)) {
+                    pool.shutdownNow();
+                    return;
+                }
+                timeStart += System.nanoTime() - timeEnd; // in between time
+            }
+        }
+
+        pool.shutdown();
+    }
+
+    private static void submit(CompletionService<GameResult> games, int game) {
+        boolean switchSides = game % 2 == 1; // swap every game
+        if (!switchSides) opening = Openings.random(random, openingMoves); // new opening for every pair
+
+        List<Action> pairOpening = opening;
+        games.submit(() -> playGame(game, switchSides, pairOpening));
+    }
+
+    private static GameResult playGame(int game, boolean switchSides, List<Action> opening) {
+        AI[] ai = ais.get();
+        AI first = switchSides ? ai[1] : ai[0];
+        AI second = switchSides ? ai[0] : ai[1];
+
+        State state = new Gomoku();
+        for (Action action : opening) {
+            state.makeMove(action);
+        }
+
+        first.reset();
+        second.reset();
+        first.setPosition(opening);
+        second.setPosition(opening);
+
+        int ply = opening.size();
+        Action opponentAction = null;
+
+        // Play a game
+        while (!state.isTerminal()) {
+            ply++;
+
+            Action action = state.isFirstPlayer() ? first.makeMove(state, opponentAction) : second.makeMove(state, opponentAction);
+
+            state.makeMove(action);
+            opponentAction = action;
+        }
+
+        return new GameResult(game, state.score(), switchSides, ply);
+    }
+
+    private static class GameResult {
+        final int game; // order in which the game was started
+        final int score; // in the perspective of the X player
+        final boolean switchSides;
+        final int gameLength;
+
+        GameResult(int game, int score, boolean switchSides, int gameLength) {
+            this.game = game;
+            this.score = score;
+            this.switchSides = switchSides;
+            this.gameLength = gameLength;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import gomoku.ai.examplesmartrandom.SmartRandomAI;
 import gomoku.state.GomokuFunctions;
 import gomoku.state.State;
 
+import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.Random;
 
@@ -41,6 +42,7 @@ public class SpeedTest {
         }
 
         long timeStart, timeEnd;
+        long bytesStart = allocatedBytes();
         timeStart = System.nanoTime();
 
         for (int i = 0; i < N; i++) {
@@ -71,10 +73,22 @@ public class SpeedTest {
         }
 
         timeEnd = System.nanoTime();
+        long bytes = allocatedBytes() - bytesStart;
 
         double diff = (double) (timeEnd - timeStart) / 1000000000;
         System.out.println("Time elapsed: " + diff);
         System.out.println("Simulations per second: " + N / diff);
+        System.out.println("Bytes allocated per simulation: " + bytes / N);
+        System.out.println("Allocation rate (MB/s): " + bytes / diff / 1000000);
+    }
+
+    // Bytes allocated so far by this thread, or 0 if the JVM cannot tell
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
     }
 
     // Return a move to play in simulation
@@ -1,6 +1,7 @@
 package gomoku.testing;
 
 // Keep track of match wins, losses, etc
+// Synchronized so that games played on several threads can report to the same Statistics
 
 public class Statistics {
 
@@ -9,6 +10,12 @@ public class Statistics {
 
     private int lastGameLength;
 
+    // Results of game pairs (same opening, both colours) in half points for AI_A: 0, 1, 2, 3 or 4 out of 4
+    // The two games of a pair are the games added one after the other
+    private final int[] pairs = new int[5];
+    private int pairCount;
+    private int pending = -1; // half points in the first game of an unfinished pair, -1 if there is none
+
     private int size; // Match size
     private int current; // current match number
 
@@ -17,7 +24,7 @@ public class Statistics {
     }
 
     // result in the perspective of the X player
-    public void addData(int result, boolean switchSides, int gameLength) {
+    public synchronized void addData(int result, boolean switchSides, int gameLength) {
         if (result == 1) {
             Xwins++;
 
@@ -38,32 +45,63 @@ public class Statistics {
             Xdraws++;
             draws++;
         }
+
+        int halfPoints = result == 0 ? 1 : (result == 1) != switchSides ? 2 : 0;
+        if (pending == -1) {
+            pending = halfPoints;
+        } else {
+            pairs[pending + halfPoints]++;
+            pairCount++;
+            pending = -1;
+        }
+
         current++;
         totalGameLength += gameLength;
         lastGameLength = gameLength;
     }
 
-    public int getWins() {
+    public synchronized int getWins() {
         return wins;
     }
 
-    public int getDraws() {
+    public synchronized int getDraws() {
         return draws;
     }
 
-    public int getLosses() {
+    public synchronized int getLosses() {
         return losses;
     }
 
-    public int getCurrent() {
+    public synchronized int getCurrent() {
         return current;
     }
 
-    public void changeSize(int size) {
+    public synchronized int getPairCount() {
+        return pairCount;
+    }
+
+    // Log-likelihood ratio of the SPRT on game pairs (pentanomial model)
+    // A pair cancels out most of the colour and opening luck, so its variance is lower than that of two single games
+    // and the test needs fewer games to decide
+    public synchronized double pentanomialLlr(double elo0, double elo1) {
+        if (pairCount == 0) return 0;
+
+        double mean = pairMean();
+        double var = pairVariance(mean);
+        if (var == 0) return 0; // avoid division by 0
+        double var_s = var / pairCount;
+
+        double s0 = ll(elo0);
+        double s1 = ll(elo1);
+
+        return (s1-s0)*(2*mean-s0-s1)/var_s/2.0;
+    }
+
+    public synchronized void changeSize(int size) {
         this.size = size;
     }
 
-    public void print(int gameLength) {
+    public synchronized void print(int gameLength) {
         System.out.println("W-L-D " + wins + "-" + losses + "-" + draws + ". " + current + " out of " + size + " games completed.");
         //Information on elo can be found here: https://en.wikipedia.org/wiki/Elo_rating_system , https://en.wikipedia.org/wiki/Chess_rating_system
         System.out.print("Elo difference: " + format(2, elo((wins + 0.5 * draws) / current)));
@@ -85,11 +123,11 @@ public class Statistics {
         System.out.println();
     }
 
-    public void print() {
+    public synchronized void print() {
         print(lastGameLength);
     }
 
-    public void printSPRT(int gameLength) {
+    public synchronized void printSPRT(int gameLength) {
         System.out.println("W-L-D " + wins + "-" + losses + "-" + draws + ". " + current + " games completed.");
         //Information on elo can be found here: https://en.wikipedia.org/wiki/Elo_rating_system , https://en.wikipedia.org/wiki/Chess_rating_system
         System.out.print("Elo difference: " + format(2, elo((wins + 0.5 * draws) / current)));
@@ -108,10 +146,20 @@ public class Statistics {
         System.out.println(" (95% confidence)");
         System.out.println("    LOS: " + format(5, (0.5 + 0.5 * erf((Xwins - Xlosses) / Math.sqrt(2.0 * (Xwins + Xlosses))))));
 
+        if (pairCount > 0) {
+            double mean = pairMean();
+            double error = 1.95996 * Math.sqrt(pairVariance(mean) / pairCount);
+            System.out.println("(Pairs) 0-0.5-1-1.5-2 " + pairs[0] + "-" + pairs[1] + "-" + pairs[2] + "-" + pairs[3] + "-" + pairs[4] + ". " + pairCount + " pairs completed.");
+            System.out.print("    Elo difference: " + format(2, elo(mean)));
+            System.out.print(" +" + format(2, (double) Math.round(1000 * (elo(mean + error) - elo(mean))) / 1000));
+            System.out.print(" " + format(2, (double) Math.round(1000 * (elo(mean - error) - elo(mean))) / 1000));
+            System.out.println(" (95% confidence)");
+        }
+
         System.out.println();
     }
 
-    public void printSPRT() {
+    public synchronized void printSPRT() {
         printSPRT(lastGameLength);
     }
 
@@ -143,6 +191,27 @@ public class Statistics {
         // source: https://introcs.cs.princeton.edu/java/21function/ErrorFunction.java.html
     }
 
+    // Mean score of AI_A per game in the pairs
+    private double pairMean() {
+        double sum = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            sum += pairs[i] * i / 4.0;
+        }
+        return sum / pairCount;
+    }
+
+    private double pairVariance(double mean) {
+        double sum = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            sum += pairs[i] * Math.pow(i / 4.0 - mean, 2);
+        }
+        return sum / pairCount;
+    }
+
+    private static double ll(double elo) {
+        return 1 /(1 + Math.pow(10, -elo/400));
+    }
+
     private double standardErrorOfMeanScore() {
         double mean = (wins + 0.5 * draws) / current;
         double standardDeviation = Math.sqrt((wins * Math.pow(1 - mean, 2) + draws * Math.pow(0.5 - mean, 2) + losses * Math.pow(mean, 2)) / (current + 1));